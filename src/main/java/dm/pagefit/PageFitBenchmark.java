@@ -0,0 +1,263 @@
+package dm.pagefit;
+
+import dm.pagefit.clustering.AssignmentEngine;
+import dm.pagefit.clustering.BruteForceAssignment;
+import dm.pagefit.clustering.GridAssignment;
+import dm.pagefit.clustering.HamerlyAssignment;
+import dm.pagefit.clustering.KMidRangeClusterer;
+import dm.pagefit.clustering.PageCluster;
+import dm.pagefit.io.CoordinateFile;
+import dm.pagefit.map.CompactCoordinates;
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.CoordinateKernel;
+import dm.pagefit.map.MapRectangle;
+import dm.pagefit.map.PageSize;
+import dm.pagefit.map.ScalarCoordinateKernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The PageFitBenchmark class times the hot loops of a fit over the bundled routes. For each route it fits
+ * the pages once, then times the coordinate kernels (scalar against the kernel selected for this JVM, in
+ * double and in float) and each assignment engine as the route is tiled to raise the page count.
+ * <p>
+ * Each figure is the fastest of several runs after a warm-up, in microseconds per full pass over the points.
+ * Run with {@code --add-modules jdk.incubator.vector} to compare the SIMD kernels; without it, or with
+ * {@code -Dpagefit.simd=false}, the selected kernel is the scalar one.
+ */
+public class PageFitBenchmark
+{
+    // Routes timed when none are given on the command line
+    private final static String[] ROUTE_FILENAMES = {
+            "resources/route1.txt",
+            "resources/route2.txt",
+            "resources/route3.txt"
+    };
+
+    // Page size used for clustering
+    private final static PageSize PAGE_SIZE = new PageSize.A3MapSize(10000);
+
+    // Untimed runs before measuring, and timed runs of which the fastest is reported
+    private final static int WARMUP_RUNS = 20;
+    private final static int TIMED_RUNS = 20;
+
+    // Copies of the route laid side by side for the assignment timings
+    private final static int[] TILES = {1, 4, 16};
+
+    // Accumulates results so the timed loops cannot be optimised away
+    private double sink;
+
+    /**
+     * Times each route in turn.
+     *
+     * @param routeFilenames the routes to time
+     */
+    public PageFitBenchmark(String[] routeFilenames)
+    {
+        System.out.println("Selected kernel: " + CoordinateKernel.get().getClass().getSimpleName());
+
+        for (String routeFilename : routeFilenames)
+            benchmarkRoute(routeFilename);
+
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * Fits a route once, then times the kernels and the assignment engines against the fitted page centres.
+     *
+     * @param routeFilename the route to time
+     */
+    private void benchmarkRoute(String routeFilename)
+    {
+        List<Coordinate> coordinates = CoordinateFile.loadCoordinates(routeFilename);
+
+        long start = System.nanoTime();
+        List<PageCluster> clusters = new KMidRangeClusterer(10, coordinates, PAGE_SIZE).fit();
+        long fitMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%n%s: %d points, %d pages, fit %d ms%n", routeFilename, coordinates.size(),
+                clusters.size(), fitMillis);
+
+        benchmarkKernel("scalar", new ScalarCoordinateKernel(), coordinates, clusters);
+
+        if (!(CoordinateKernel.get() instanceof ScalarCoordinateKernel))
+            benchmarkKernel("selected", CoordinateKernel.get(), coordinates, clusters);
+
+        for (int tiles : TILES)
+            benchmarkAssignment(coordinates, clusters, tiles);
+    }
+
+    /**
+     * Times one kernel: a nearest-centre pass over every page centre in double and in float, a containment
+     * count against every page rectangle, and the bounds of the route.
+     *
+     * @param name        the label printed for the kernel
+     * @param kernel      the kernel to time
+     * @param coordinates the route
+     * @param clusters    the fitted pages
+     */
+    private void benchmarkKernel(String name, CoordinateKernel kernel, List<Coordinate> coordinates,
+                                 List<PageCluster> clusters)
+    {
+        int n = coordinates.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+
+        for (int i = 0; i < n; i++)
+        {
+            xs[i] = coordinates.get(i).getX();
+            ys[i] = coordinates.get(i).getY();
+        }
+
+        CompactCoordinates compact = CompactCoordinates.of(coordinates);
+        double[] bestDistance = new double[n];
+        float[] bestFloatDistance = new float[n];
+        float[] secondFloatDistance = new float[n];
+        int[] bestIndex = new int[n];
+
+        long nearestDouble = time(() ->
+        {
+            Arrays.fill(bestDistance, Double.MAX_VALUE);
+
+            for (int c = 0; c < clusters.size(); c++)
+            {
+                Coordinate centre = clusters.get(c).getClusterCentre();
+                kernel.nearestCentre(xs, ys, n, centre.getX(), centre.getY(), c, bestDistance, bestIndex);
+            }
+
+            sink += bestIndex[n - 1];
+        });
+
+        long nearestFloat = time(() ->
+        {
+            Arrays.fill(bestFloatDistance, Float.MAX_VALUE);
+            Arrays.fill(secondFloatDistance, Float.MAX_VALUE);
+
+            for (int c = 0; c < clusters.size(); c++)
+            {
+                Coordinate centre = clusters.get(c).getClusterCentre();
+                kernel.nearestCentre(compact.getXs(), compact.getYs(), n, compact.toOffsetX(centre.getX()),
+                        compact.toOffsetY(centre.getY()), c, bestFloatDistance, secondFloatDistance, bestIndex);
+            }
+
+            sink += bestIndex[n - 1];
+        });
+
+        long contained = time(() ->
+        {
+            for (PageCluster cluster : clusters)
+            {
+                MapRectangle pageRect = cluster.getPageRectangle();
+                sink += kernel.countContained(xs, ys, n, pageRect.getMinX(), pageRect.getMinY(),
+                        pageRect.getMaxX(), pageRect.getMaxY());
+            }
+        });
+
+        long bounds = time(() ->
+                sink += kernel.min(xs, n) + kernel.max(xs, n) + kernel.min(ys, n) + kernel.max(ys, n));
+
+        System.out.printf("  %-8s kernel: nearest double %6d us, nearest float %6d us, contained %6d us, "
+                + "bounds %4d us%n", name, nearestDouble, nearestFloat, contained, bounds);
+    }
+
+    /**
+     * Times one assignment of the route, tiled side by side, to the fitted page centres tiled the same way.
+     * Each engine is reset before every run, so the figures are for the first iteration of a fit, and every
+     * engine's assignment is checked against the brute force one.
+     *
+     * @param coordinates the route
+     * @param clusters    the fitted pages
+     * @param tiles       the number of copies of the route
+     */
+    private void benchmarkAssignment(List<Coordinate> coordinates, List<PageCluster> clusters, int tiles)
+    {
+        double minX = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+
+        for (Coordinate coordinate : coordinates)
+        {
+            minX = Math.min(minX, coordinate.getX());
+            maxX = Math.max(maxX, coordinate.getX());
+        }
+
+        // Leave a page of space between the copies so no copy's points are nearer another copy's pages
+        double spacing = maxX - minX + PAGE_SIZE.getScaledWidth() + PAGE_SIZE.getScaledHeight();
+        List<Coordinate> points = new ArrayList<>();
+        List<PageCluster> centres = new ArrayList<>();
+
+        for (int t = 0; t < tiles; t++)
+        {
+            for (Coordinate coordinate : coordinates)
+                points.add(new Coordinate(coordinate.getX() + t * spacing, coordinate.getY()));
+
+            for (PageCluster cluster : clusters)
+            {
+                Coordinate centre = cluster.getClusterCentre();
+                centres.add(new PageCluster(new Coordinate(centre.getX() + t * spacing, centre.getY()), PAGE_SIZE));
+            }
+        }
+
+        AssignmentEngine[] engines = {
+                new BruteForceAssignment(),
+                BruteForceAssignment.compact(),
+                new GridAssignment(),
+                new HamerlyAssignment()
+        };
+        String[] names = {"brute force", "compact", "grid", "hamerly"};
+
+        int[] expected = null;
+        StringBuilder line = new StringBuilder(String.format("  K=%-5d", centres.size()));
+
+        for (int e = 0; e < engines.length; e++)
+        {
+            AssignmentEngine engine = engines[e];
+            int[] assignments = new int[points.size()];
+
+            long micros = time(() ->
+            {
+                engine.reset();
+                Arrays.fill(assignments, -1);
+                engine.assign(points, centres, assignments);
+            });
+
+            if (expected == null)
+                expected = assignments;
+
+            line.append(String.format(" %s %6d us%s,", names[e], micros,
+                    Arrays.equals(expected, assignments) ? "" : " (differs)"));
+        }
+
+        line.setLength(line.length() - 1);
+        System.out.println(line);
+    }
+
+    /**
+     * Runs a task for the warm-up runs, then returns the fastest of the timed runs.
+     *
+     * @param task the task to time
+     * @return the fastest run, in microseconds
+     */
+    private static long time(Runnable task)
+    {
+        for (int i = 0; i < WARMUP_RUNS; i++)
+            task.run();
+
+        long fastest = Long.MAX_VALUE;
+
+        for (int i = 0; i < TIMED_RUNS; i++)
+        {
+            long start = System.nanoTime();
+            task.run();
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        return fastest / 1000;
+    }
+
+    public static void main(String[] args)
+    {
+        new PageFitBenchmark(args.length > 0 ? args : ROUTE_FILENAMES);
+    }
+}
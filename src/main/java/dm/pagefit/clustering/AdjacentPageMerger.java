@@ -0,0 +1,235 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
+import dm.pagefit.map.PageSize;
+import dm.pagefit.map.RectangleUtils;
+import dm.pagefit.map.SpatialGrid;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code AdjacentPageMerger} class replaces pairs of neighbouring pages with a single page wherever the
+ * combined bounding box of their points fits inside one portrait or landscape page. The fit test only uses the
+ * cluster rectangles already stored on each {@link PageCluster}, and candidate partners come from a spatial
+ * index over those rectangles, so each test is O(1) and only nearby pairs are tried. Merged pages are queued
+ * again, and the pass ends when no page has a partner it can merge with, at a cost close to linear in the
+ * number of pages.
+ */
+public class AdjacentPageMerger {
+
+    /**
+     * Merges adjacent pages until no more merges are possible.
+     *
+     * @param clusters the fitted pages
+     * @return the unmerged pages in their original order, followed by the merged pages
+     */
+    public List<PageCluster> merge(List<PageCluster> clusters) {
+        if (clusters.size() < 2) {
+            return clusters;
+        }
+
+        holdCoveredPoints(clusters);
+
+        PageSize pageSize = clusters.get(0).getPageSize();
+        double shortSide = Math.min(pageSize.getScaledWidth(), pageSize.getScaledHeight());
+        double longSide = Math.max(pageSize.getScaledWidth(), pageSize.getScaledHeight());
+
+        // Pages still in the layout, in order, and an index of their cluster rectangles
+        Set<PageCluster> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<PageCluster> order = new ArrayList<>();
+        SpatialGrid<PageCluster> index = new SpatialGrid<>(longSide);
+        Deque<PageCluster> queue = new ArrayDeque<>();
+
+        for (PageCluster cluster : clusters) {
+            live.add(cluster);
+            order.add(cluster);
+
+            if (cluster.getClusterRectangle() != null) {
+                index.insert(cluster, cluster.getClusterRectangle());
+                queue.add(cluster);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            PageCluster cluster = queue.poll();
+
+            if (!live.contains(cluster)) {
+                continue;
+            }
+
+            MapRectangle bounds = cluster.getClusterRectangle();
+            PageCluster partner = findPartner(cluster, index, shortSide, longSide);
+
+            if (partner == null) {
+                continue;
+            }
+
+            PageCluster merged = mergePair(cluster, partner);
+
+            if (merged == null) {
+                continue;
+            }
+
+            index.remove(cluster, bounds);
+            index.remove(partner, partner.getClusterRectangle());
+            live.remove(cluster);
+            live.remove(partner);
+
+            index.insert(merged, merged.getClusterRectangle());
+            live.add(merged);
+            order.add(merged);
+            queue.add(merged);
+        }
+
+        List<PageCluster> merged = new ArrayList<>();
+
+        for (PageCluster cluster : order) {
+            if (live.contains(cluster)) {
+                merged.add(cluster);
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Finds the nearby page whose combined bounds with the given page fit on one page, preferring the
+     * partner that gives the smallest combined area.
+     */
+    private PageCluster findPartner(PageCluster cluster, SpatialGrid<PageCluster> index, double shortSide, double longSide) {
+        MapRectangle bounds = cluster.getClusterRectangle();
+
+        // Any partner that fits must lie within one page length of the cluster's bounds
+        MapRectangle searchArea = bounds.grow(longSide);
+
+        PageCluster partner = null;
+        double partnerArea = Double.MAX_VALUE;
+
+        for (PageCluster candidate : index.query(searchArea)) {
+            if (candidate == cluster) {
+                continue;
+            }
+
+            MapRectangle union = bounds.union(candidate.getClusterRectangle());
+            double area = union.getWidth() * union.getHeight();
+
+            if (fits(union.getWidth(), union.getHeight(), shortSide, longSide) && area < partnerArea) {
+                partner = candidate;
+                partnerArea = area;
+            }
+        }
+
+        return partner;
+    }
+
+    /**
+     * Returns whether a bounding box fits strictly inside the page in either orientation.
+     */
+    private static boolean fits(double width, double height, double shortSide, double longSide) {
+        return (width < shortSide && height < longSide) || (width < longSide && height < shortSide);
+    }
+
+    /**
+     * Creates a single page holding the points of both clusters.
+     *
+     * @return the merged page, or null if rounding leaves the combined bounds outside the page
+     */
+    private PageCluster mergePair(PageCluster first, PageCluster second) {
+        MapRectangle bounds = first.getClusterRectangle().union(second.getClusterRectangle());
+
+        PageCluster merged = new PageCluster(RectangleUtils.getRectangleCentre(bounds), first.getPageSize());
+        merged.getPoints().addAll(first.getPoints());
+        merged.getPoints().addAll(second.getPoints());
+        merged.updateCluster();
+
+        // Check the bounds of the merged points themselves, since a cluster rectangle may not have been refreshed
+        // since its points last changed; MapRectangle.contains excludes the maximum edges, so the far corner is
+        // checked separately
+        MapRectangle pointBounds = merged.getClusterRectangle();
+        MapRectangle pageRect = merged.getPageRectangle();
+
+        if (pointBounds == null || !pageRect.contains(pointBounds.getMinX(), pointBounds.getMinY())
+                || pointBounds.getMaxX() >= pageRect.getMaxX() || pointBounds.getMaxY() >= pageRect.getMaxY()) {
+            return null;
+        }
+
+        int firstCount = first.getPoints().size();
+        int secondCount = second.getPoints().size();
+
+        if (first.getAverageIndexOfClusterPoints() >= 0 && second.getAverageIndexOfClusterPoints() >= 0) {
+            merged.setAverageIndexOfClusterPoints((first.getAverageIndexOfClusterPoints() * firstCount
+                    + second.getAverageIndexOfClusterPoints() * secondCount) / (firstCount + secondCount));
+        }
+
+        return merged;
+    }
+
+    /**
+     * Moves every point held by a page that does not contain it to a page that does. Afterwards each
+     * cluster rectangle lies inside its own page, so merging two pages whose cluster rectangles fit can never
+     * uncover a point held elsewhere.
+     */
+    private void holdCoveredPoints(List<PageCluster> clusters) {
+        MapRectangle firstPage = clusters.get(0).getPageRectangle();
+        double cellSize = firstPage == null ? 1 : Math.max(firstPage.getWidth(), firstPage.getHeight());
+        SpatialGrid<PageCluster> pageIndex = new SpatialGrid<>(cellSize);
+
+        for (PageCluster cluster : clusters) {
+            if (cluster.getPageRectangle() != null) {
+                pageIndex.insert(cluster, cluster.getPageRectangle());
+            }
+        }
+
+        Set<PageCluster> changed = new LinkedHashSet<>();
+
+        for (PageCluster cluster : clusters) {
+            MapRectangle pageRect = cluster.getPageRectangle();
+            List<Coordinate> kept = new ArrayList<>(cluster.getPoints().size());
+
+            for (Coordinate point : cluster.getPoints()) {
+                PageCluster holder = pageRect != null && pageRect.contains(point.getX(), point.getY())
+                        ? cluster : findCover(pageIndex, point);
+
+                if (holder == cluster || holder == null) {
+                    kept.add(point);
+                } else {
+                    holder.getPoints().add(point);
+                    changed.add(holder);
+                    changed.add(cluster);
+                }
+            }
+
+            if (kept.size() < cluster.getPoints().size()) {
+                cluster.getPoints().clear();
+                cluster.getPoints().addAll(kept);
+            }
+        }
+
+        for (PageCluster cluster : changed) {
+            cluster.updateClusterRectangle();
+        }
+    }
+
+    /**
+     * Returns a page containing the point, or null if no page does.
+     */
+    private static PageCluster findCover(SpatialGrid<PageCluster> pageIndex, Coordinate point) {
+        MapRectangle location = new MapRectangle(point.getX(), point.getY(), 0, 0);
+
+        for (PageCluster candidate : pageIndex.query(location)) {
+            if (candidate.getPageRectangle().contains(point.getX(), point.getY())) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,94 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+
+import java.util.List;
+
+/**
+ * Strategy for the assignment step of {@link KMidRangeClusterer}: finding the nearest cluster centre
+ * for each point. Implementations may keep state between calls to speed up later iterations.
+ */
+public interface AssignmentEngine
+{
+    /**
+     * Assigns every point to its nearest cluster. Ties go to the cluster with the lowest index.
+     *
+     * @param points      the points being clustered
+     * @param clusters    the current clusters, whose centres are used for the assignment
+     * @param assignments the index of each point's cluster, -1 if unassigned; updated in place
+     * @return true if any point was assigned to a different cluster than before
+     */
+    boolean assign(List<Coordinate> points, List<PageCluster> clusters, int[] assignments);
+
+    /**
+     * Assigns only the candidate points, each to the nearest of the active clusters and the cluster already
+     * holding it, active or not. Localised refinement passes the points around a new cluster, so a point can
+     * move between a frozen cluster and an active one but never between two frozen ones, and the work is in
+     * proportion to the candidates rather than the route. Ties go to the cluster with the lowest index.
+     * <p>
+     * The default measures the distance from each candidate to every active centre, which suits any engine
+     * since the candidates are few.
+     *
+     * @param points         the points being clustered
+     * @param clusters       the current clusters, whose centres are used for the assignment
+     * @param activeClusters a flag per cluster, true if the cluster takes part in this assignment
+     * @param candidates     the indices of the points to assign
+     * @param assignments    the index of each point's cluster, -1 if unassigned; updated in place
+     * @return true if any candidate was assigned to a different cluster than before
+     */
+    default boolean assignCandidates(List<Coordinate> points, List<PageCluster> clusters, boolean[] activeClusters,
+                                     int[] candidates, int[] assignments)
+    {
+        int[] activeIndices = new int[clusters.size()];
+        int activeCount = 0;
+
+        for (int c = 0; c < clusters.size(); c++)
+            if (activeClusters[c])
+                activeIndices[activeCount++] = c;
+
+        boolean changed = false;
+
+        for (int p : candidates)
+        {
+            Coordinate point = points.get(p);
+            int holder = assignments[p];
+            int nearestCluster = -1;
+            double nearestDistance = Double.MAX_VALUE;
+
+            // A frozen holder competes with the active clusters, so the point only leaves it for a nearer centre
+            if (holder != -1 && !activeClusters[holder])
+            {
+                nearestCluster = holder;
+                nearestDistance = clusters.get(holder).distance(point);
+            }
+
+            for (int a = 0; a < activeCount; a++)
+            {
+                int c = activeIndices[a];
+                double distance = clusters.get(c).distance(point);
+
+                if (distance < nearestDistance || (distance == nearestDistance && c < nearestCluster))
+                {
+                    nearestDistance = distance;
+                    nearestCluster = c;
+                }
+            }
+
+            if (assignments[p] != nearestCluster)
+            {
+                assignments[p] = nearestCluster;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Discards any state kept from earlier calls. {@link KMidRangeClusterer} calls this at the start of every fit,
+     * since the points may have been edited in place since the last one.
+     */
+    default void reset()
+    {
+    }
+}
@@ -0,0 +1,227 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.CompactCoordinates;
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.CoordinateKernel;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns points by measuring the distance from every point to every cluster centre.
+ * Costs O(N·K) per iteration. The points are scanned one centre at a time over packed coordinate arrays
+ * with the {@link CoordinateKernel}, which uses SIMD where available.
+ * <p>
+ * The engine from {@link #compact()} packs the points as {@link CompactCoordinates} instead, so the scan moves
+ * half the bytes and fits twice the lanes per vector. Points whose nearest and second nearest centres are closer
+ * in float than the error bound allows are rechecked in double, so the assignments are the same either way.
+ */
+public class BruteForceAssignment implements AssignmentEngine
+{
+    // Whether the all-cluster scan runs on float offsets
+    private final boolean compact;
+
+    // Packed copy of the last point list, reused while the same list is being clustered until reset()
+    private List<Coordinate> packedPoints;
+    private double[] xs;
+    private double[] ys;
+    private CompactCoordinates compactPoints;
+
+    // Per-point scratch for the double scan, grown only when the route grows
+    private double[] nearestDistance;
+    private int[] nearestIndex;
+
+    // Per-point scratch for the compact scan, sized with compactPoints
+    private float[] bestDistance;
+    private float[] secondDistance;
+    private int[] bestIndex;
+
+    /**
+     * Constructs an engine that scans the points in double precision.
+     */
+    public BruteForceAssignment()
+    {
+        this(false);
+    }
+
+    private BruteForceAssignment(boolean compact)
+    {
+        this.compact = compact;
+    }
+
+    /**
+     * Creates an engine that scans float offsets from the route origin rather than doubles, falling back to
+     * double for near ties. It gives the same assignments as the default engine, and is faster when the
+     * {@link CoordinateKernel} uses SIMD.
+     *
+     * @return the engine
+     */
+    public static BruteForceAssignment compact()
+    {
+        return new BruteForceAssignment(true);
+    }
+
+    @Override
+    public void reset()
+    {
+        packedPoints = null;
+        xs = ys = null;
+        compactPoints = null;
+        nearestDistance = null;
+        nearestIndex = null;
+        bestDistance = secondDistance = null;
+        bestIndex = null;
+    }
+
+    @Override
+    public boolean assign(List<Coordinate> points, List<PageCluster> clusters, int[] assignments)
+    {
+        return compact ? assignAllCompact(points, clusters, assignments) : assignAll(points, clusters, assignments);
+    }
+
+    /**
+     * Assigns every point, one centre at a time, using the coordinate kernel.
+     */
+    private boolean assignAll(List<Coordinate> points, List<PageCluster> clusters, int[] assignments)
+    {
+        int n = points.size();
+        pack(points);
+
+        if (nearestDistance == null || nearestDistance.length < n)
+        {
+            nearestDistance = new double[n];
+            nearestIndex = new int[n];
+        }
+
+        Arrays.fill(nearestDistance, 0, n, Double.MAX_VALUE);
+        Arrays.fill(nearestIndex, 0, n, -1);
+
+        // Visiting centres in index order with a strict comparison keeps ties on the lowest index
+        CoordinateKernel kernel = CoordinateKernel.get();
+
+        for (int c = 0; c < clusters.size(); c++)
+        {
+            Coordinate centre = clusters.get(c).getClusterCentre();
+            kernel.nearestCentre(xs, ys, n, centre.getX(), centre.getY(), c, nearestDistance, nearestIndex);
+        }
+
+        boolean changed = false;
+
+        for (int p = 0; p < n; p++)
+        {
+            if (assignments[p] != nearestIndex[p])
+            {
+                assignments[p] = nearestIndex[p];
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Assigns every point, one centre at a time, using the float kernel over compact coordinates. A point keeps
+     * the float winner only if its margin over the runner-up exceeds the combined error bound of both distances,
+     * which guarantees the same winner in double; otherwise every centre is measured again in double.
+     */
+    private boolean assignAllCompact(List<Coordinate> points, List<PageCluster> clusters, int[] assignments)
+    {
+        int n = points.size();
+
+        if (points != packedPoints || compactPoints == null || compactPoints.size() != n)
+        {
+            compactPoints = CompactCoordinates.of(points);
+            packedPoints = points;
+            xs = ys = null;
+            bestDistance = new float[n];
+            secondDistance = new float[n];
+            bestIndex = new int[n];
+        }
+
+        Arrays.fill(bestDistance, Float.MAX_VALUE);
+        Arrays.fill(secondDistance, Float.MAX_VALUE);
+        Arrays.fill(bestIndex, -1);
+
+        CoordinateKernel kernel = CoordinateKernel.get();
+        double magnitude = compactPoints.getMagnitude();
+
+        for (int c = 0; c < clusters.size(); c++)
+        {
+            Coordinate centre = clusters.get(c).getClusterCentre();
+            float cx = compactPoints.toOffsetX(centre.getX());
+            float cy = compactPoints.toOffsetY(centre.getY());
+            magnitude = Math.max(magnitude, Math.max(Math.abs(cx), Math.abs(cy)));
+            kernel.nearestCentre(compactPoints.getXs(), compactPoints.getYs(), n, cx, cy, c,
+                    bestDistance, secondDistance, bestIndex);
+        }
+
+        boolean changed = false;
+
+        for (int p = 0; p < n; p++)
+        {
+            double best = bestDistance[p];
+            double second = secondDistance[p];
+            int nearestCluster = bestIndex[p];
+
+            // Twice the bound, so the true margin also stays far above the rounding of the double distances
+            double error = CompactCoordinates.distanceSquaredError(best, magnitude)
+                    + CompactCoordinates.distanceSquaredError(second, magnitude);
+
+            if (second - best <= 2 * error)
+                nearestCluster = nearestInDouble(points.get(p), clusters);
+
+            if (assignments[p] != nearestCluster)
+            {
+                assignments[p] = nearestCluster;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Finds the nearest centre to a point in double, keeping ties on the lowest index as the kernel does.
+     */
+    private static int nearestInDouble(Coordinate point, List<PageCluster> clusters)
+    {
+        int nearestCluster = -1;
+        double nearestDistance = Double.MAX_VALUE;
+
+        for (int c = 0; c < clusters.size(); c++)
+        {
+            Coordinate centre = clusters.get(c).getClusterCentre();
+            double dx = centre.getX() - point.getX();
+            double dy = centre.getY() - point.getY();
+            double distance = dx * dx + dy * dy;
+
+            if (distance < nearestDistance)
+            {
+                nearestDistance = distance;
+                nearestCluster = c;
+            }
+        }
+
+        return nearestCluster;
+    }
+
+    private void pack(List<Coordinate> points)
+    {
+        if (points == packedPoints && xs != null && xs.length == points.size())
+            return;
+
+        xs = new double[points.size()];
+        ys = new double[points.size()];
+
+        for (int p = 0; p < points.size(); p++)
+        {
+            xs[p] = points.get(p).getX();
+            ys[p] = points.get(p).getY();
+        }
+
+        packedPoints = points;
+        compactPoints = null;
+        bestDistance = secondDistance = null;
+        bestIndex = null;
+    }
+}
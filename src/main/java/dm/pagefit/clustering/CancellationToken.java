@@ -0,0 +1,60 @@
+package dm.pagefit.clustering;
+
+import java.time.Duration;
+
+/**
+ * Signals a running fit to stop early. A token is cancelled either explicitly, from any thread, or
+ * automatically once its deadline passes. Use one of the factory methods to create a token.
+ */
+public class CancellationToken
+{
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    private volatile boolean cancelled = false;
+
+    private CancellationToken(long deadlineNanos, boolean hasDeadline)
+    {
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = hasDeadline;
+    }
+
+    /**
+     * Creates a token that is only cancelled by calling {@link #cancel()}.
+     *
+     * @return the token
+     */
+    public static CancellationToken create()
+    {
+        return new CancellationToken(0, false);
+    }
+
+    /**
+     * Creates a token that is cancelled automatically once the budget has elapsed, or earlier by
+     * calling {@link #cancel()}.
+     *
+     * @param budget the time allowed from now
+     * @return the token
+     */
+    public static CancellationToken withBudget(Duration budget)
+    {
+        return new CancellationToken(System.nanoTime() + budget.toNanos(), true);
+    }
+
+    /**
+     * Cancels the token. Safe to call from any thread.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether the token has been cancelled or its deadline has passed.
+     *
+     * @return true if the fit should stop
+     */
+    public boolean isCancelled()
+    {
+        return cancelled || (hasDeadline && System.nanoTime() - deadlineNanos >= 0);
+    }
+}
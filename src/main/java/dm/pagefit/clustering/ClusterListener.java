@@ -14,6 +14,16 @@ public interface ClusterListener
      */
     void updated(List<? extends PageClusterable> clusters);
 
+    /**
+     * Called while clustering is in progress, at the cadence set by the clusterer's {@link ProgressThrottle}.
+     * The report is an immutable snapshot, so it may be kept or passed to another thread.
+     *
+     * @param progress a snapshot of the clusters' centres, rectangles and point counts
+     */
+    default void progress(ClusteringProgress progress)
+    {
+    }
+
     /**
      * Called when the clustering process has finished.
      */
@@ -0,0 +1,74 @@
+package dm.pagefit.clustering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable progress report emitted by the clusterer while it is fitting.
+ */
+public class ClusteringProgress
+{
+    private final int iteration;
+    private final boolean clusterAdded;
+    private final List<PageSnapshot> pages;
+
+    /**
+     * Constructs a progress report, snapshotting each of the given clusters.
+     *
+     * @param iteration    the number of assign/update iterations run so far
+     * @param clusterAdded true if a new cluster was added since the previous iteration
+     * @param clusters     the clusters to snapshot
+     */
+    public ClusteringProgress(int iteration, boolean clusterAdded, List<PageCluster> clusters)
+    {
+        List<PageSnapshot> pages = new ArrayList<>(clusters.size());
+
+        for (PageCluster cluster : clusters)
+            pages.add(new PageSnapshot(cluster));
+
+        this.iteration = iteration;
+        this.clusterAdded = clusterAdded;
+        this.pages = Collections.unmodifiableList(pages);
+    }
+
+    /**
+     * Returns the number of assign/update iterations run so far.
+     *
+     * @return the iteration count
+     */
+    public int getIteration()
+    {
+        return iteration;
+    }
+
+    /**
+     * Returns whether a new cluster was added since the previous iteration.
+     *
+     * @return true if a cluster was just added
+     */
+    public boolean isClusterAdded()
+    {
+        return clusterAdded;
+    }
+
+    /**
+     * Returns the number of clusters at the time of the report.
+     *
+     * @return the cluster count
+     */
+    public int getClusterCount()
+    {
+        return pages.size();
+    }
+
+    /**
+     * Returns an unmodifiable list of page snapshots, one per cluster.
+     *
+     * @return the page snapshots
+     */
+    public List<PageSnapshot> getPages()
+    {
+        return pages;
+    }
+}
@@ -0,0 +1,47 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+
+import java.util.List;
+
+/**
+ * Base class for seeding strategies that weigh uncovered points by their distance to the existing centres.
+ * <p>
+ * The distance of each point to its nearest centre is kept in an array reused across seeds. Rather than
+ * measuring every point against every centre, each uncovered point is measured against the centre of the
+ * cluster it was last assigned to, which is its nearest centre as of the last assignment step. This makes
+ * each seed O(uncovered) instead of O(N·K).
+ */
+public abstract class DistanceSeeding implements SeedingStrategy
+{
+    // Squared distance from each point to its nearest centre, valid for the uncovered points only
+    private double[] distances = new double[0];
+
+    @Override
+    public int selectSeed(List<Coordinate> points, int[] uncovered, List<PageCluster> clusters, int[] assignments)
+    {
+        // With no centres yet, every point is equally far; start from the beginning of the route
+        if (clusters.isEmpty())
+            return uncovered[0];
+
+        if (distances.length != points.size())
+            distances = new double[points.size()];
+
+        for (int p : uncovered)
+        {
+            int assigned = assignments[p];
+            distances[p] = (assigned == -1) ? Double.MAX_VALUE : clusters.get(assigned).distance(points.get(p));
+        }
+
+        return selectSeed(uncovered, distances);
+    }
+
+    /**
+     * Chooses the seed from the uncovered points given their squared distances to the nearest centre.
+     *
+     * @param uncovered the indices of the uncovered points, in route order
+     * @param distances the squared distance of each point to its nearest centre, indexed by point
+     * @return the index of the seed point
+     */
+    protected abstract int selectSeed(int[] uncovered, double[] distances);
+}
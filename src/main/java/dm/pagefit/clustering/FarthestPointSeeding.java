@@ -0,0 +1,21 @@
+package dm.pagefit.clustering;
+
+/**
+ * Seeds each new cluster at the uncovered point farthest from its nearest existing centre, which places
+ * pages at the ends of uncovered runs rather than in their middles. Deterministic; ties go to the point
+ * earliest in the route.
+ */
+public class FarthestPointSeeding extends DistanceSeeding
+{
+    @Override
+    protected int selectSeed(int[] uncovered, double[] distances)
+    {
+        int farthest = uncovered[0];
+
+        for (int p : uncovered)
+            if (distances[p] > distances[farthest])
+                farthest = p;
+
+        return farthest;
+    }
+}
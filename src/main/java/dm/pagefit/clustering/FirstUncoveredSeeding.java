@@ -0,0 +1,18 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+
+import java.util.List;
+
+/**
+ * Seeds each new cluster at the first uncovered point in route order, so pages are laid down from the
+ * start of each uncovered run rather than its middle. Deterministic and O(1) per seed.
+ */
+public class FirstUncoveredSeeding implements SeedingStrategy
+{
+    @Override
+    public int selectSeed(List<Coordinate> points, int[] uncovered, List<PageCluster> clusters, int[] assignments)
+    {
+        return uncovered[0];
+    }
+}
@@ -0,0 +1,198 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+
+import java.util.List;
+
+/**
+ * Assigns points using a uniform grid over the cluster centres, rebuilt on every iteration.
+ * Each point searches outwards from its own grid cell, one ring of cells at a time, and stops as soon as
+ * no unvisited cell can hold a nearer centre. With roughly one centre per cell a point only measures the
+ * distance to a handful of centres, so assignment is close to O(N) per iteration rather than O(N·K).
+ * Results match {@link BruteForceAssignment}, including ties going to the lowest cluster index.
+ */
+public class GridAssignment implements AssignmentEngine
+{
+    // Upper limit on the number of grid cells, to bound memory for very spread out centres
+    private static final int MAX_CELLS = 1 << 16;
+
+    // Grid geometry for the current iteration
+    private double minX;
+    private double minY;
+    private double cellSize;
+    private int columns;
+    private int rows;
+
+    // Cluster indices bucketed by cell: cell i holds cellItems[cellStart[i] .. cellStart[i + 1])
+    private int[] cellStart;
+    private int[] cellItems;
+
+    // Centre coordinates by cluster index
+    private double[] centreX;
+    private double[] centreY;
+
+    @Override
+    public boolean assign(List<Coordinate> points, List<PageCluster> clusters, int[] assignments)
+    {
+        int k = buildGrid(clusters);
+
+        if (k == 0)
+            return false;
+
+        boolean changed = false;
+
+        for (int p = 0; p < points.size(); p++)
+        {
+            int nearestCluster = nearest(points.get(p), k);
+
+            if (assignments[p] != nearestCluster)
+            {
+                assignments[p] = nearestCluster;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Finds the nearest centre by searching rings of cells around the point's cell.
+     */
+    private int nearest(Coordinate point, int k)
+    {
+        double px = point.getX();
+        double py = point.getY();
+        int cellX = clamp((int) Math.floor((px - minX) / cellSize), columns);
+        int cellY = clamp((int) Math.floor((py - minY) / cellSize), rows);
+
+        int nearestCluster = -1;
+        double nearestDistance = Double.MAX_VALUE;
+        int visited = 0;
+
+        for (int ring = 0; ; ring++)
+        {
+            int fromX = cellX - ring;
+            int toX = cellX + ring;
+            int fromY = cellY - ring;
+            int toY = cellY + ring;
+
+            for (int y = Math.max(fromY, 0); y <= Math.min(toY, rows - 1); y++)
+            {
+                // Interior rows of the ring only contribute their two end cells
+                boolean edgeRow = (y == fromY || y == toY);
+                int step = edgeRow ? 1 : Math.max(1, toX - fromX);
+
+                for (int x = fromX; x <= toX; x += step)
+                {
+                    if (x < 0 || x >= columns)
+                        continue;
+
+                    int cell = y * columns + x;
+
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++)
+                    {
+                        int c = cellItems[i];
+                        double dx = centreX[c] - px;
+                        double dy = centreY[c] - py;
+                        double distance = dx * dx + dy * dy;
+
+                        if (distance < nearestDistance || (distance == nearestDistance && c < nearestCluster))
+                        {
+                            nearestDistance = distance;
+                            nearestCluster = c;
+                        }
+
+                        visited++;
+                    }
+                }
+            }
+
+            if (visited == k)
+                return nearestCluster;
+
+            // Distance from the point to the nearest cell outside the searched block
+            double outside = Double.POSITIVE_INFINITY;
+
+            if (fromX > 0)
+                outside = Math.min(outside, Math.max(0, px - (minX + fromX * cellSize)));
+            if (toX < columns - 1)
+                outside = Math.min(outside, Math.max(0, (minX + (toX + 1) * cellSize) - px));
+            if (fromY > 0)
+                outside = Math.min(outside, Math.max(0, py - (minY + fromY * cellSize)));
+            if (toY < rows - 1)
+                outside = Math.min(outside, Math.max(0, (minY + (toY + 1) * cellSize) - py));
+
+            if (nearestDistance < outside * outside)
+                return nearestCluster;
+        }
+    }
+
+    /**
+     * Buckets the centres into grid cells sized for roughly one centre per cell.
+     *
+     * @return the number of centres
+     */
+    private int buildGrid(List<PageCluster> clusters)
+    {
+        int k = clusters.size();
+        centreX = new double[k];
+        centreY = new double[k];
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int c = 0; c < k; c++)
+        {
+            Coordinate centre = clusters.get(c).getClusterCentre();
+            centreX[c] = centre.getX();
+            centreY[c] = centre.getY();
+            minX = Math.min(minX, centreX[c]);
+            minY = Math.min(minY, centreY[c]);
+            maxX = Math.max(maxX, centreX[c]);
+            maxY = Math.max(maxY, centreY[c]);
+        }
+
+        if (k == 0)
+            return 0;
+
+        double width = maxX - minX;
+        double height = maxY - minY;
+        cellSize = Math.max(Math.sqrt(width * height / k), Math.max(width, height) / k);
+        cellSize = Math.max(cellSize, Math.max(width, height) / Math.sqrt(MAX_CELLS));
+
+        if (cellSize <= 0)
+            cellSize = 1;
+
+        columns = (int) (width / cellSize) + 1;
+        rows = (int) (height / cellSize) + 1;
+
+        // Counting sort of the centres into their cells
+        cellStart = new int[columns * rows + 1];
+        cellItems = new int[k];
+        int[] cellOf = new int[k];
+
+        for (int c = 0; c < k; c++)
+        {
+            int x = clamp((int) ((centreX[c] - minX) / cellSize), columns);
+            int y = clamp((int) ((centreY[c] - minY) / cellSize), rows);
+            cellOf[c] = y * columns + x;
+            cellStart[cellOf[c] + 1]++;
+        }
+
+        for (int i = 0; i < columns * rows; i++)
+            cellStart[i + 1] += cellStart[i];
+
+        int[] fill = new int[columns * rows];
+
+        for (int c = 0; c < k; c++)
+            cellItems[cellStart[cellOf[c]] + fill[cellOf[c]]++] = c;
+
+        return k;
+    }
+
+    private static int clamp(int value, int size)
+    {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
@@ -0,0 +1,200 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+
+import java.util.List;
+
+/**
+ * Assigns points using Hamerly's triangle-inequality bounds. Each point keeps an upper bound on the
+ * distance to its own centre and a lower bound on the distance to every other centre. The bounds are
+ * carried across iterations and loosened by how far the centres moved, so once the centres settle most
+ * points are confirmed in their cluster without measuring any distances.
+ * <p>
+ * Bounds are rebuilt with a full O(N·K) pass whenever the set of clusters changes, or after localised
+ * refinement has reassigned points without them. Results match {@link BruteForceAssignment} except
+ * where a point is exactly equidistant from two centres.
+ */
+public class HamerlyAssignment implements AssignmentEngine
+{
+    private double[] upper; // upper bound on the distance from each point to its assigned centre
+    private double[] lower; // lower bound on the distance from each point to its second-nearest centre
+    private double[] centreX; // centres at the previous assignment
+    private double[] centreY;
+
+    @Override
+    public void reset()
+    {
+        upper = null;
+    }
+
+    @Override
+    public boolean assignCandidates(List<Coordinate> points, List<PageCluster> clusters, boolean[] activeClusters,
+                                    int[] candidates, int[] assignments)
+    {
+        // The bounds only hold for points assigned by this engine
+        upper = null;
+        return AssignmentEngine.super.assignCandidates(points, clusters, activeClusters, candidates, assignments);
+    }
+
+    @Override
+    public boolean assign(List<Coordinate> points, List<PageCluster> clusters, int[] assignments)
+    {
+        if (upper == null || upper.length != points.size() || centreX.length != clusters.size())
+            return initialise(points, clusters, assignments);
+
+        int k = clusters.size();
+
+        // How far each centre moved since the last iteration, and the two largest moves
+        double[] moved = new double[k];
+        int maxMovedIndex = -1;
+        double maxMoved = 0;
+        double secondMaxMoved = 0;
+
+        for (int c = 0; c < k; c++)
+        {
+            Coordinate centre = clusters.get(c).getClusterCentre();
+            moved[c] = Math.hypot(centre.getX() - centreX[c], centre.getY() - centreY[c]);
+            centreX[c] = centre.getX();
+            centreY[c] = centre.getY();
+
+            if (moved[c] > maxMoved)
+            {
+                secondMaxMoved = maxMoved;
+                maxMoved = moved[c];
+                maxMovedIndex = c;
+            }
+            else if (moved[c] > secondMaxMoved)
+            {
+                secondMaxMoved = moved[c];
+            }
+        }
+
+        double[] halfNearestCentre = halfDistanceToNearestCentre();
+        boolean changed = false;
+
+        for (int p = 0; p < points.size(); p++)
+        {
+            int assigned = assignments[p];
+
+            if (assigned == -1)
+            {
+                changed |= scan(p, points.get(p), clusters, assignments);
+                continue;
+            }
+
+            upper[p] += moved[assigned];
+            lower[p] -= (assigned == maxMovedIndex) ? secondMaxMoved : maxMoved;
+
+            double bound = Math.max(halfNearestCentre[assigned], lower[p]);
+
+            if (upper[p] <= bound)
+                continue;
+
+            // Tighten the upper bound and try again before scanning every centre
+            Coordinate point = points.get(p);
+            upper[p] = Math.sqrt(clusters.get(assigned).distance(point));
+
+            if (upper[p] <= bound)
+                continue;
+
+            if (scan(p, point, clusters, assignments))
+                changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Runs a full pass over every point and centre, recording the nearest and second-nearest distances as bounds.
+     */
+    private boolean initialise(List<Coordinate> points, List<PageCluster> clusters, int[] assignments)
+    {
+        int k = clusters.size();
+        upper = new double[points.size()];
+        lower = new double[points.size()];
+        centreX = new double[k];
+        centreY = new double[k];
+
+        for (int c = 0; c < k; c++)
+        {
+            centreX[c] = clusters.get(c).getClusterCentre().getX();
+            centreY[c] = clusters.get(c).getClusterCentre().getY();
+        }
+
+        boolean changed = false;
+
+        for (int p = 0; p < points.size(); p++)
+            if (scan(p, points.get(p), clusters, assignments))
+                changed = true;
+
+        return changed;
+    }
+
+    /**
+     * Finds the nearest and second-nearest centres of a point and resets its bounds.
+     *
+     * @return true if the point changed cluster
+     */
+    private boolean scan(int p, Coordinate point, List<PageCluster> clusters, int[] assignments)
+    {
+        int nearestCluster = -1;
+        double nearestDistance = Double.MAX_VALUE;
+        double secondDistance = Double.MAX_VALUE;
+
+        for (int c = 0; c < clusters.size(); c++)
+        {
+            double distance = clusters.get(c).distance(point);
+
+            if (distance < nearestDistance)
+            {
+                secondDistance = nearestDistance;
+                nearestDistance = distance;
+                nearestCluster = c;
+            }
+            else if (distance < secondDistance)
+            {
+                secondDistance = distance;
+            }
+        }
+
+        upper[p] = Math.sqrt(nearestDistance);
+        lower[p] = secondDistance == Double.MAX_VALUE ? Double.POSITIVE_INFINITY : Math.sqrt(secondDistance);
+
+        if (assignments[p] != nearestCluster)
+        {
+            assignments[p] = nearestCluster;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns, for each centre, half the distance to its nearest other centre. A point closer than this
+     * to its own centre cannot be closer to any other.
+     */
+    private double[] halfDistanceToNearestCentre()
+    {
+        int k = centreX.length;
+        double[] half = new double[k];
+
+        for (int c = 0; c < k; c++)
+        {
+            double nearest = Double.POSITIVE_INFINITY;
+
+            for (int other = 0; other < k; other++)
+            {
+                if (other != c)
+                {
+                    double dx = centreX[c] - centreX[other];
+                    double dy = centreY[c] - centreY[other];
+                    nearest = Math.min(nearest, dx * dx + dy * dy);
+                }
+            }
+
+            half[c] = Math.sqrt(nearest) / 2;
+        }
+
+        return half;
+    }
+}
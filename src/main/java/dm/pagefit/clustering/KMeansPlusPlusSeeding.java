@@ -0,0 +1,51 @@
+package dm.pagefit.clustering;
+
+import java.util.Random;
+
+/**
+ * Seeds each new cluster k-means++ style: an uncovered point is picked at random with probability
+ * proportional to its squared distance from the nearest existing centre.
+ */
+public class KMeansPlusPlusSeeding extends DistanceSeeding
+{
+    private final Random random;
+
+    /**
+     * Constructs a k-means++ seeding strategy with an unseeded random source.
+     */
+    public KMeansPlusPlusSeeding()
+    {
+        this(new Random());
+    }
+
+    /**
+     * Constructs a k-means++ seeding strategy with the given random source, for repeatable fits.
+     *
+     * @param random the random source
+     */
+    public KMeansPlusPlusSeeding(Random random)
+    {
+        this.random = random;
+    }
+
+    @Override
+    protected int selectSeed(int[] uncovered, double[] distances)
+    {
+        double total = 0;
+
+        for (int p : uncovered)
+            total += Math.min(distances[p], Double.MAX_VALUE / uncovered.length);
+
+        double target = random.nextDouble() * total;
+
+        for (int p : uncovered)
+        {
+            target -= Math.min(distances[p], Double.MAX_VALUE / uncovered.length);
+
+            if (target < 0)
+                return p;
+        }
+
+        return uncovered[uncovered.length - 1];
+    }
+}
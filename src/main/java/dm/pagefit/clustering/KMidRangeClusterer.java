@@ -1,12 +1,21 @@
 package dm.pagefit.clustering;
 
 import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
 import dm.pagefit.map.PageSize;
+import dm.pagefit.map.RouteSimplifier;
+import dm.pagefit.map.SpatialGrid;
 
-import java.awt.geom.Rectangle2D;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -21,6 +30,21 @@ public class KMidRangeClusterer {
     private List<Coordinate> points;
     private List<PageCluster> clusters = new ArrayList<>();
     private ClusterListener listener;
+    private ProgressThrottle progressThrottle = ProgressThrottle.onNewCluster();
+    private int iterations = 0;
+    private double convergenceEpsilon = -1; // negative disables early stopping
+    private int[] assignments; // index of the cluster each point was last assigned to
+    private boolean allAssigned; // whether a full assignment has run since the assignments were reset
+    private double localRefinementPages = 0; // neighbourhood size in page lengths, 0 refines every cluster
+    private AssignmentEngine assignmentEngine = new BruteForceAssignment();
+    private SeedingStrategy seedingStrategy = new RandomSeeding();
+    private PageCoverage coverage; // which points each page covers, kept up to date between refinements
+    private CancellationToken cancellation = CancellationToken.create(); // stops the current fit early
+    private RouteSimplifier simplifier; // null clusters every point
+    private int coarseSamplePoints = 0; // size of the coarse sample, 0 disables coarse-to-fine fitting
+    private int fineIterations; // refinement iterations on the full route after a coarse fit
+    private boolean mergeAdjacentPages = true;
+    private boolean pruneRedundantPages = true;
 
     /**
      * Constructs a new {@code KMidRangeClusterer} with the specified parameters.
@@ -44,6 +68,129 @@ public class KMidRangeClusterer {
         this.listener = listener;
     }
 
+    /**
+     * Sets how often progress reports are sent to the listener. Defaults to once per added cluster.
+     *
+     * @param progressThrottle the cadence of progress reports
+     */
+    public void setProgressThrottle(ProgressThrottle progressThrottle) {
+        this.progressThrottle = progressThrottle;
+    }
+
+    /**
+     * Enables convergence-based early stopping. Refinement after adding a cluster stops as soon as no point
+     * changes cluster, or every cluster centre moves less than {@code epsilon}; the iteration count passed to
+     * the constructor becomes an upper bound. Stopping on stable assignments never changes the result, since
+     * further iterations would reproduce the same centres. A negative epsilon disables early stopping.
+     *
+     * @param epsilon the centre movement, in map units, below which refinement is considered converged
+     */
+    public void setConvergenceEpsilon(double epsilon) {
+        this.convergenceEpsilon = epsilon;
+    }
+
+    /**
+     * Enables localised refinement. After a cluster is added, only the points within the given number of page
+     * lengths of the new cluster are reassigned, and only the clusters whose page rectangles reach into that
+     * neighbourhood are refined; every other cluster is frozen. A point in the neighbourhood goes to the nearest
+     * of the refined clusters and the cluster already holding it, so it can leave a frozen cluster for a nearer
+     * one. This makes each refinement step proportional to the size of the neighbourhood rather than the whole
+     * route, at the cost of never moving points outside it. A value of 0 or less refines every cluster.
+     *
+     * @param neighbourhoodPages the neighbourhood radius, in multiples of the longer page side
+     */
+    public void setLocalRefinement(double neighbourhoodPages) {
+        this.localRefinementPages = neighbourhoodPages;
+    }
+
+    /**
+     * Sets the engine used to assign points to their nearest cluster. Defaults to {@link BruteForceAssignment};
+     * {@link HamerlyAssignment} skips most distance calculations once the centres settle.
+     *
+     * @param assignmentEngine the assignment engine
+     */
+    public void setAssignmentEngine(AssignmentEngine assignmentEngine) {
+        this.assignmentEngine = assignmentEngine;
+    }
+
+    /**
+     * Starts the next {@link #fit()} from an existing page layout, such as the output of {@link RouteWalkPager},
+     * instead of from a single seed. The given clusters are refined first and new clusters are only added
+     * where their pages leave points uncovered. The clusters are copied, so the originals are not modified.
+     *
+     * @param initialClusters the clusters to start from
+     */
+    public void warmStart(List<PageCluster> initialClusters) {
+        for (PageCluster initial : initialClusters) {
+            clusters.add(new PageCluster(initial.getClusterCentre(), initial.getPageSize()));
+        }
+    }
+
+    /**
+     * Sets the strategy used to choose where each new cluster starts. Defaults to {@link RandomSeeding}.
+     *
+     * @param seedingStrategy the seeding strategy
+     */
+    public void setSeedingStrategy(SeedingStrategy seedingStrategy) {
+        this.seedingStrategy = seedingStrategy;
+    }
+
+    /**
+     * Clusters a simplified copy of the route, then verifies the result against every original point. Any
+     * original point left outside the pages gets further clusters as usual, so the final layout still covers
+     * the full route while most iterations only visit the simplified points. Pass null to cluster every point.
+     *
+     * @param simplifier the route simplifier, for example {@link RouteSimplifier#forPageSize(PageSize)}
+     */
+    public void setSimplification(RouteSimplifier simplifier) {
+        this.simplifier = simplifier;
+    }
+
+    /**
+     * Enables coarse-to-fine fitting. The route is first decimated to roughly {@code samplePoints} evenly spaced
+     * points and clustered with the same settings, which is where most iterations are spent. The resulting
+     * clusters then warm start the full-resolution fit, which runs only {@code fineIterations} refinement
+     * iterations over every point before covering any points the coarse pages missed.
+     *
+     * @param samplePoints   the approximate size of the coarse sample, or 0 to disable coarse-to-fine fitting
+     * @param fineIterations the number of refinement iterations on the full route
+     */
+    public void setCoarseToFine(int samplePoints, int fineIterations) {
+        this.coarseSamplePoints = samplePoints;
+        this.fineIterations = fineIterations;
+    }
+
+    /**
+     * Sets whether neighbouring pages are merged once fitting is complete. Two pages are merged when the
+     * combined bounds of their points fit inside a single page in either orientation. Enabled by default.
+     *
+     * @param mergeAdjacentPages true to merge adjacent pages
+     * @see AdjacentPageMerger
+     */
+    public void setMergeAdjacentPages(boolean mergeAdjacentPages) {
+        this.mergeAdjacentPages = mergeAdjacentPages;
+    }
+
+    /**
+     * Sets whether pages made redundant by their neighbours are removed once fitting is complete. A page is
+     * redundant when every point inside it is also inside another page. Enabled by default.
+     *
+     * @param pruneRedundantPages true to remove redundant pages
+     * @see RedundantPagePruner
+     */
+    public void setPruneRedundantPages(boolean pruneRedundantPages) {
+        this.pruneRedundantPages = pruneRedundantPages;
+    }
+
+    /**
+     * Returns the number of assign/update iterations used by the last call to {@link #fit()}.
+     *
+     * @return the number of iterations actually run
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
     /**
      * Performs the clustering operation by iteratively adding and refining clusters until all points
      * are contained within the clusters' page boundaries. The method also sorts the clusters based on
@@ -52,30 +199,107 @@ public class KMidRangeClusterer {
      * @return a list of sorted {@code PageCluster} objects after clustering is complete
      */
     public List<PageCluster> fit() {
+        return fit(CancellationToken.create());
+    }
+
+    /**
+     * Performs the clustering operation within a time budget. If the budget runs out, the current cluster is
+     * finished and any points still uncovered are paged greedily, so a valid layout is always returned.
+     *
+     * @param budget the time allowed for the fit
+     * @return a list of sorted {@code PageCluster} objects covering every point
+     * @see #fit(CancellationToken)
+     */
+    public List<PageCluster> fit(Duration budget) {
+        return fit(CancellationToken.withBudget(budget));
+    }
+
+    /**
+     * Performs the clustering operation until every point is covered or the token is cancelled. The token is
+     * checked after each refinement iteration; once it is cancelled, no more clusters are added or refined and
+     * the points still uncovered are paged with {@link RouteWalkPager} in a single pass, so the result always
+     * covers every point. Merging and pruning are skipped for a cancelled fit. If the fitted pages hold fewer
+     * points per page than the greedy ones, the whole route is also paged with {@link RouteWalkPager}, and that
+     * layout is returned if it needs fewer pages.
+     * <p>
+     * The time spent after cancellation is therefore bounded: the refinement iteration in progress, then a
+     * few linear passes over the route to page the remainder, possibly page the whole route, and order the pages.
+     * It does not depend on how many clusters remain to be added, but it does grow with the route length, so a
+     * caller with a hard deadline should allow for it when choosing the budget.
+     *
+     * @param cancellation the token that stops the fit early
+     * @return a list of sorted {@code PageCluster} objects covering every point
+     */
+    public List<PageCluster> fit(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+        iterations = 0;
+        int warmStartIterations = iterationsBeforeAddingNewCluster;
+
+        // Fit a decimated sample first and use its clusters as the starting layout
+        if (coarseSamplePoints > 0 && points.size() > coarseSamplePoints) {
+            warmStart(fitCoarseSample());
+            warmStartIterations = fineIterations;
+        }
+
+        if (simplifier != null) {
+            // Fit the simplified route, then verify against the full route
+            List<Coordinate> route = points;
+            points = simplifier.simplify(route);
+            resetAssignments();
+            refineWarmStart(warmStartIterations);
+            coverAllPoints();
+
+            // Hand every original point to its nearest page, without moving the pages
+            points = route;
+            resetAssignments();
+            assignPointsToClusters();
+
+            // The cluster rectangles still bound only the simplified points
+            for (PageCluster cluster : clusters) {
+                cluster.updateClusterRectangle();
+            }
+        } else {
+            resetAssignments();
+            refineWarmStart(warmStartIterations);
+        }
+
         // Continue clustering until all points are within cluster pages
-        while (!getPointsNotInPage().isEmpty()) {
-            addCluster();
+        coverAllPoints();
 
-            for (int i = 0; i < iterationsBeforeAddingNewCluster; i++)
-            {
-                assignPointsToClusters();
+        // A cancelled fit pages whatever is left greedily
+        boolean cancelled = cancellation.isCancelled();
+        int[] uncovered = coverage.update(clusters) > 0 ? coverage.uncoveredIndices() : new int[0];
 
-                for (PageCluster cluster : clusters) {
-                    cluster.updateCluster();
-                }
+        if (uncovered.length > 0) {
+            int fittedPages = clusters.size();
+            coverRemainingGreedily(uncovered);
+
+            // Only when the fitted pages are less full than the greedy ones can paging the whole route greedily
+            // be expected to need fewer pages, so only then is the extra pass worth making
+            int greedyPages = clusters.size() - fittedPages;
 
-                // Notify listener of updates if present
-                if (listener != null) {
-                    //listener.updated(clusters);
+            if ((long) fittedPages * uncovered.length > (long) greedyPages * (points.size() - uncovered.length)) {
+                List<PageCluster> greedy = new RouteWalkPager(points, pageSize).fit();
+
+                if (greedy.size() < clusters.size()) {
+                    clusters = greedy;
                 }
             }
         }
 
-        // Calculate the average index for ordering clusters
-        for (PageCluster cluster : clusters) {
-            cluster.calculateOrderIndex(points);
+        // Combine neighbouring pages whose points fit on a single page
+        if (mergeAdjacentPages && !cancelled) {
+            clusters = new AdjacentPageMerger().merge(clusters);
         }
 
+        // Drop pages whose points are all covered by other pages
+        if (pruneRedundantPages && !cancelled) {
+            clusters = new RedundantPagePruner(points).prune(clusters);
+        }
+
+        // Calculate the average index for ordering clusters
+        calculateOrderIndices();
+
         // Sort clusters based on the average index of their points
         List<PageCluster> sortedClusters = clusters.stream()
                 .sorted(Comparator.comparingDouble(PageCluster::getAverageIndexOfClusterPoints))
@@ -91,33 +315,622 @@ public class KMidRangeClusterer {
     }
 
     /**
-     * Assigns each point to the nearest cluster based on Euclidean distance.
-     * Clears previous cluster assignments before reassignment.
+     * Re-pages the route after an edit, starting from the pages of a previous fit. The points passed to the
+     * constructor are the edited route, and the edit is described by the range of route indices that were
+     * appended or changed. Pages far from the edit are kept exactly as they were; pages within the local
+     * refinement neighbourhood of the edit (one page length if localised refinement is disabled) are refined
+     * again together with the edited points, and new pages are only added for points they leave uncovered.
+     * Apart from a few linear passes to reindex the route, the cost depends on the size of the edit rather
+     * than the length of the route. The previous pages are copied, so they are not modified.
+     *
+     * @param previous    the pages from the previous fit of the route
+     * @param changedFrom the index of the first appended or changed point in the edited route
+     * @param changedTo   the index after the last appended or changed point in the edited route
+     * @return a list of sorted {@code PageCluster} objects covering the edited route
+     */
+    public List<PageCluster> refit(List<PageCluster> previous, int changedFrom, int changedTo) {
+        iterations = 0;
+        cancellation = CancellationToken.create();
+
+        Map<Coordinate, Integer> routeIndex = createRouteIndex();
+        List<PageCluster> pages = new ArrayList<>();
+
+        // Copy the previous pages, dropping points that are no longer on the route
+        for (PageCluster cluster : previous) {
+            PageCluster copy = new PageCluster(cluster);
+            copy.getPoints().removeIf(point -> !routeIndex.containsKey(point) || isChanged(routeIndex.get(point), changedFrom, changedTo));
+            pages.add(copy);
+        }
+
+        // Points that need a page: the edited points, plus any point no previous page contains
+        boolean[] local = new boolean[points.size()];
+
+        for (int p = changedFrom; p < changedTo; p++) {
+            local[p] = true;
+        }
+
+        double pageLength = Math.max(pageSize.getScaledWidth(), pageSize.getScaledHeight());
+        SpatialGrid<PageCluster> pageIndex = new SpatialGrid<>(pageLength);
+
+        for (PageCluster page : pages) {
+            if (page.getPageRectangle() != null) {
+                pageIndex.insert(page, page.getPageRectangle());
+            }
+        }
+
+        // Every kept point must be held by a page that contains it, so freezing a page keeps its points covered
+        List<Coordinate> outsideOwnPage = new ArrayList<>();
+
+        for (PageCluster page : pages) {
+            Iterator<Coordinate> iterator = page.getPoints().iterator();
+
+            while (iterator.hasNext()) {
+                Coordinate point = iterator.next();
+
+                if (page.getPageRectangle() == null || !page.getPageRectangle().contains(point.getX(), point.getY())) {
+                    iterator.remove();
+                    outsideOwnPage.add(point);
+                }
+            }
+        }
+
+        for (Coordinate point : outsideOwnPage) {
+            PageCluster holder = findContainingPage(pageIndex, point);
+
+            if (holder != null) {
+                holder.getPoints().add(point);
+            } else {
+                local[routeIndex.get(point)] = true;
+            }
+        }
+
+        // Pages near the edit are free to move
+        MapRectangle editArea = boundsOf(local);
+        List<PageCluster> frozen = new ArrayList<>();
+        List<PageCluster> free = new ArrayList<>();
+
+        if (editArea != null) {
+            double radius = (localRefinementPages > 0 ? localRefinementPages : 1) * pageLength;
+            MapRectangle neighbourhood = editArea.grow(radius);
+
+            for (PageCluster page : pageIndex.query(neighbourhood)) {
+                if (page.getPageRectangle().intersects(neighbourhood)) {
+                    free.add(page);
+                }
+            }
+        }
+
+        Set<PageCluster> freePages = Collections.newSetFromMap(new IdentityHashMap<>());
+        freePages.addAll(free);
+
+        for (PageCluster page : pages) {
+            if (freePages.contains(page)) {
+                for (Coordinate point : page.getPoints()) {
+                    local[routeIndex.get(point)] = true;
+                }
+            } else if (!page.getPoints().isEmpty()) {
+                frozen.add(page);
+            }
+        }
+
+        // Refit only the local points, starting from the free pages
+        List<Coordinate> localPoints = new ArrayList<>();
+
+        for (int p = 0; p < points.size(); p++) {
+            if (local[p]) {
+                localPoints.add(points.get(p));
+            }
+        }
+
+        clusters = new ArrayList<>(frozen);
+
+        if (!localPoints.isEmpty()) {
+            KMidRangeClusterer nested = createNestedClusterer(localPoints);
+            nested.setMergeAdjacentPages(mergeAdjacentPages);
+            nested.setPruneRedundantPages(pruneRedundantPages);
+            nested.warmStart(free);
+            clusters.addAll(nested.fit(cancellation));
+            iterations = nested.getIterations();
+        }
+
+        calculateOrderIndices();
+
+        List<PageCluster> sortedClusters = clusters.stream()
+                .sorted(Comparator.comparingDouble(PageCluster::getAverageIndexOfClusterPoints))
+                .collect(Collectors.toList());
+
+        if (listener != null) {
+            listener.updated(sortedClusters);
+            listener.finished();
+        }
+
+        return sortedClusters;
+    }
+
+    /**
+     * Re-pages the route after points were appended to the end of it.
+     *
+     * @param previous     the pages from the previous fit of the route
+     * @param previousSize the number of points in the route when it was last fitted
+     * @return a list of sorted {@code PageCluster} objects covering the extended route
+     * @see #refit(List, int, int)
+     */
+    public List<PageCluster> refitAppended(List<PageCluster> previous, int previousSize) {
+        return refit(previous, previousSize, points.size());
+    }
+
+    private static PageCluster findContainingPage(SpatialGrid<PageCluster> pageIndex, Coordinate point) {
+        for (PageCluster page : pageIndex.query(new MapRectangle(point.getX(), point.getY(), 0, 0))) {
+            if (page.getPageRectangle().contains(point.getX(), point.getY())) {
+                return page;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isChanged(int index, int changedFrom, int changedTo) {
+        return index >= changedFrom && index < changedTo;
+    }
+
+    /**
+     * Returns the bounding box of the flagged points, or null if no point is flagged.
+     */
+    private MapRectangle boundsOf(boolean[] flagged) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        boolean any = false;
+
+        for (int p = 0; p < flagged.length; p++) {
+            if (flagged[p]) {
+                minX = Math.min(minX, points.get(p).getX());
+                minY = Math.min(minY, points.get(p).getY());
+                maxX = Math.max(maxX, points.get(p).getX());
+                maxY = Math.max(maxY, points.get(p).getY());
+                any = true;
+            }
+        }
+
+        return any ? MapRectangle.fromBounds(minX, minY, maxX, maxY) : null;
+    }
+
+    /**
+     * Returns the index of every point in the route, looked up by identity.
+     */
+    private Map<Coordinate, Integer> createRouteIndex() {
+        Map<Coordinate, Integer> routeIndex = new IdentityHashMap<>(points.size());
+
+        for (int p = 0; p < points.size(); p++) {
+            routeIndex.putIfAbsent(points.get(p), p);
+        }
+
+        return routeIndex;
+    }
+
+    /**
+     * Calculates the average route index of each cluster's points, looking the points up in a single identity
+     * index of the route rather than searching the route for every point.
+     */
+    private void calculateOrderIndices() {
+        Map<Coordinate, Integer> routeIndex = createRouteIndex();
+
+        for (PageCluster cluster : clusters) {
+            double sum = 0;
+
+            for (Coordinate point : cluster.getPoints()) {
+                sum += routeIndex.getOrDefault(point, -1);
+            }
+
+            cluster.setAverageIndexOfClusterPoints(sum / cluster.getPoints().size());
+        }
+    }
+
+    /**
+     * Clears the point assignments and coverage, and any state the assignment engine kept from an earlier fit,
+     * for a fit over the current point list.
      */
-    private void assignPointsToClusters() {
+    private void resetAssignments() {
+        coverage = null;
+        allAssigned = false;
+        assignmentEngine.reset();
+        assignments = new int[points.size()];
+        Arrays.fill(assignments, -1);
+    }
+
+    /**
+     * Refines any warm-start clusters before looking for uncovered points.
+     *
+     * @param maxIterations the maximum number of refinement iterations
+     */
+    private void refineWarmStart(int maxIterations) {
+        if (!clusters.isEmpty()) {
+            refine(allClusters(), maxIterations);
+        }
+    }
+
+    /**
+     * Creates a clusterer for a subset of the points, sharing this clusterer's refinement settings.
+     */
+    private KMidRangeClusterer createNestedClusterer(List<Coordinate> subset) {
+        KMidRangeClusterer nested = new KMidRangeClusterer(iterationsBeforeAddingNewCluster, subset, pageSize);
+        nested.setConvergenceEpsilon(convergenceEpsilon);
+        nested.setLocalRefinement(localRefinementPages);
+        nested.setAssignmentEngine(assignmentEngine);
+        nested.setSeedingStrategy(seedingStrategy);
+        return nested;
+    }
+
+    /**
+     * Clusters every n-th point of the route with the same settings as this clusterer.
+     *
+     * @return the clusters fitted to the sample
+     */
+    private List<PageCluster> fitCoarseSample() {
+        int stride = (points.size() + coarseSamplePoints - 1) / coarseSamplePoints;
+        List<Coordinate> sample = new ArrayList<>();
+
+        for (int p = 0; p < points.size(); p += stride) {
+            sample.add(points.get(p));
+        }
+
+        // Always keep the end of the route
+        if ((points.size() - 1) % stride != 0) {
+            sample.add(points.get(points.size() - 1));
+        }
+
+        KMidRangeClusterer coarse = createNestedClusterer(sample);
+        coarse.setSimplification(simplifier);
+
+        List<PageCluster> coarseClusters = coarse.fit(cancellation);
+        iterations += coarse.getIterations();
+        return coarseClusters;
+    }
+
+    /**
+     * Adds and refines clusters until every point is within a cluster's page. With localised refinement, points
+     * then left outside their own cluster's page are handed to a page that contains them.
+     */
+    private void coverAllPoints() {
+        do {
+            while (getCoverage().update(clusters) > 0 && !cancellation.isCancelled()) {
+                addCluster(coverage.uncoveredIndices());
+
+                // Points outside the neighbourhood are never reassigned, so refinement only goes local once
+                // every point has a cluster
+                if (localRefinementPages > 0 && allAssigned) {
+                    MapRectangle neighbourhood = neighbourhoodOfNewCluster();
+                    refine(selectActiveClusters(neighbourhood), coverage.pointsIn(neighbourhood),
+                            iterationsBeforeAddingNewCluster);
+                    removeEmptyClusters();
+                } else {
+                    refine(allClusters(), iterationsBeforeAddingNewCluster);
+                }
+            }
+        } while (localRefinementPages > 0 && !cancellation.isCancelled() && moveStrayPoints());
+    }
+
+    /**
+     * Pages the uncovered points with a single route-walk pass and moves them from the clusters they were
+     * assigned to onto the new pages.
+     *
+     * @param uncovered the indices of the points not within any cluster's page rectangle
+     */
+    private void coverRemainingGreedily(int[] uncovered) {
+        List<Coordinate> remaining = new ArrayList<>(uncovered.length);
+        Set<Coordinate> remainingSet = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (int p : uncovered) {
+            remaining.add(points.get(p));
+            remainingSet.add(points.get(p));
+        }
+
+        for (PageCluster cluster : clusters) {
+            cluster.getPoints().removeIf(remainingSet::contains);
+        }
+
+        clusters.addAll(new RouteWalkPager(remaining, pageSize).fit());
+    }
+
+    private boolean[] allClusters() {
+        boolean[] all = new boolean[clusters.size()];
+        Arrays.fill(all, true);
+        return all;
+    }
+
+    private void refine(boolean[] activeClusters, int maxIterations) {
+        refine(activeClusters, null, maxIterations);
+    }
+
+    /**
+     * Runs the assign/update iterations that refine the clusters after a cluster has been added.
+     *
+     * @param activeClusters a flag per cluster, true if the cluster is refined
+     * @param candidates     the indices of the points reassigned, or null to reassign every point
+     * @param maxIterations  the maximum number of iterations to run
+     */
+    private void refine(boolean[] activeClusters, int[] candidates, int maxIterations) {
+        Set<Coordinate> candidatePoints = null;
+
+        if (candidates != null) {
+            candidatePoints = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            for (int p : candidates) {
+                candidatePoints.add(points.get(p));
+            }
+        }
+
+        for (int i = 0; i < maxIterations; i++)
+        {
+            boolean assignmentsChanged = candidates == null
+                    ? assignPointsToClusters()
+                    : assignCandidatesToClusters(activeClusters, candidates, candidatePoints);
+            double maxMovement = 0;
+
+            for (int c = 0; c < clusters.size(); c++) {
+                if (activeClusters[c]) {
+                    PageCluster cluster = clusters.get(c);
+                    Coordinate previousCentre = cluster.getClusterCentre();
+                    cluster.updateCluster();
+                    maxMovement = Math.max(maxMovement, cluster.distance(previousCentre));
+                }
+            }
+
+            iterations++;
+
+            // Notify listener with a snapshot if the throttle allows
+            if (listener != null && progressThrottle.shouldEmit(iterations, i == 0)) {
+                listener.progress(new ClusteringProgress(iterations, i == 0, clusters));
+            }
+
+            // Stop refining at the next iteration once the fit is cancelled, so the overrun is a single pass
+            if (isConverged(i, assignmentsChanged, maxMovement) || cancellation.isCancelled()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns whether refinement of the current cluster set can stop early.
+     *
+     * @param iteration          the index of the iteration just run since the last cluster was added
+     * @param assignmentsChanged whether any point changed cluster in this iteration
+     * @param maxMovement        the largest squared distance moved by a cluster centre in this iteration
+     * @return true if convergence mode is enabled and the clusters have converged
+     */
+    private boolean isConverged(int iteration, boolean assignmentsChanged, double maxMovement) {
+        if (convergenceEpsilon < 0) {
+            return false;
+        }
+
+        // The first iteration after adding a cluster always moves points to it
+        if (iteration == 0) {
+            return false;
+        }
+
+        return !assignmentsChanged || maxMovement < convergenceEpsilon * convergenceEpsilon;
+    }
+
+    /**
+     * Drops the clusters left without points, such as a frozen cluster whose last points localised refinement
+     * handed to nearer clusters, and renumbers the assignments to match. Points only their pages covered are
+     * paged again by the clusters added next. The renumbering visits every point, but only when a cluster
+     * has emptied, which is rare.
+     */
+    private void removeEmptyClusters() {
+        int[] renumbered = new int[clusters.size()];
+        int kept = 0;
+
+        for (int c = 0; c < clusters.size(); c++) {
+            renumbered[c] = clusters.get(c).getPoints().isEmpty() ? -1 : kept++;
+        }
+
+        if (kept == clusters.size()) {
+            return;
+        }
+
+        clusters.removeIf(cluster -> cluster.getPoints().isEmpty());
+
+        // An empty cluster holds no assignments, so every assigned point maps to a kept cluster
+        for (int p = 0; p < assignments.length; p++) {
+            if (assignments[p] != -1) {
+                assignments[p] = renumbered[assignments[p]];
+            }
+        }
+    }
+
+    /**
+     * Hands each point lying outside its own cluster's page to the lowest indexed page that contains it, without
+     * moving any page. Localised refinement never moves a frozen page towards the points it holds, so some can be
+     * left outside it even once every point is covered. A cluster left without points is dropped.
+     *
+     * @return true if a cluster was dropped, so the points only its page covered must be paged again
+     */
+    private boolean moveStrayPoints() {
+        SpatialGrid<Integer> pageIndex = indexPages(clusters.size());
+        Set<Coordinate> moved = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Integer> movedIndices = new ArrayList<>();
+        boolean[] touched = new boolean[clusters.size()];
+
+        for (int p = 0; p < points.size(); p++) {
+            Coordinate point = points.get(p);
+            int holder = assignments[p];
+
+            if (holder == -1 || contains(clusters.get(holder), point)) {
+                continue;
+            }
+
+            int covering = -1;
+
+            for (int c : pageIndex.query(new MapRectangle(point.getX(), point.getY(), 0, 0))) {
+                if ((covering == -1 || c < covering) && contains(clusters.get(c), point)) {
+                    covering = c;
+                }
+            }
+
+            if (covering != -1) {
+                assignments[p] = covering;
+                touched[holder] = touched[covering] = true;
+                moved.add(point);
+                movedIndices.add(p);
+            }
+        }
+
+        if (moved.isEmpty()) {
+            return false;
+        }
+
+        for (int c = 0; c < clusters.size(); c++) {
+            if (touched[c]) {
+                clusters.get(c).getPoints().removeIf(moved::contains);
+            }
+        }
+
+        for (int p : movedIndices) {
+            clusters.get(assignments[p]).getPoints().add(points.get(p));
+        }
+
+        for (int c = 0; c < clusters.size(); c++) {
+            if (touched[c]) {
+                clusters.get(c).updateClusterRectangle();
+            }
+        }
+
+        int clusterCount = clusters.size();
+        removeEmptyClusters();
+        return clusters.size() < clusterCount;
+    }
+
+    private static boolean contains(PageCluster cluster, Coordinate point) {
+        MapRectangle pageRect = cluster.getPageRectangle();
+        return pageRect != null && pageRect.contains(point.getX(), point.getY());
+    }
+
+    /**
+     * Returns the square around the new cluster that localised refinement works within.
+     *
+     * @return the neighbourhood, extending the configured number of page lengths from the new cluster's centre
+     */
+    private MapRectangle neighbourhoodOfNewCluster() {
+        double radius = localRefinementPages * Math.max(pageSize.getScaledWidth(), pageSize.getScaledHeight());
+        Coordinate centre = clusters.get(clusters.size() - 1).getClusterCentre();
+        return new MapRectangle(centre.getX() - radius, centre.getY() - radius, 2 * radius, 2 * radius);
+    }
+
+    /**
+     * Chooses which clusters are refined by localised refinement: those whose page rectangles reach into the
+     * neighbourhood of the new cluster, found through a spatial index over the pages.
+     *
+     * @param neighbourhood the area around the new cluster
+     * @return a flag per cluster, true if the cluster is refined
+     */
+    private boolean[] selectActiveClusters(MapRectangle neighbourhood) {
+        boolean[] active = new boolean[clusters.size()];
+        SpatialGrid<Integer> pageIndex = indexPages(clusters.size() - 1);
+
+        for (int c : pageIndex.query(neighbourhood)) {
+            if (clusters.get(c).getPageRectangle().intersects(neighbourhood)) {
+                active[c] = true;
+            }
+        }
+
+        // The new cluster, and any cluster that has never been given a page, are always refined
+        for (int c = 0; c < clusters.size(); c++) {
+            if (clusters.get(c).getPageRectangle() == null) {
+                active[c] = true;
+            }
+        }
+
+        return active;
+    }
+
+    /**
+     * Builds a spatial index over the page rectangles of the first clusters.
+     *
+     * @param count the number of clusters to index
+     * @return the index, holding cluster indices
+     */
+    private SpatialGrid<Integer> indexPages(int count) {
+        SpatialGrid<Integer> pageIndex = new SpatialGrid<>(Math.max(pageSize.getScaledWidth(), pageSize.getScaledHeight()));
+
+        for (int c = 0; c < count; c++) {
+            MapRectangle pageRect = clusters.get(c).getPageRectangle();
+
+            if (pageRect != null) {
+                pageIndex.insert(c, pageRect);
+            }
+        }
+
+        return pageIndex;
+    }
+
+    /**
+     * Assigns every point to the nearest cluster using the assignment engine, then rebuilds the point lists
+     * of all clusters.
+     *
+     * @return true if any point was assigned to a different cluster than in the previous iteration
+     */
+    private boolean assignPointsToClusters() {
+        boolean changed = assignmentEngine.assign(points, clusters, assignments);
+        allAssigned = true;
+
         // Clear previous points from all clusters
         for (PageCluster cluster : clusters) {
             cluster.getPoints().clear();
         }
 
-        // Assign each point to the nearest cluster
-        for (Coordinate point : points) {
-            PageCluster nearestCluster = null;
-            double nearestDistance = Double.MAX_VALUE;
+        for (int p = 0; p < points.size(); p++) {
+            int c = assignments[p];
 
-            for (PageCluster cluster : clusters) {
-                double distance = cluster.distance(point);
+            if (c != -1) {
+                clusters.get(c).getPoints().add(points.get(p));
+            }
+        }
 
-                if (distance < nearestDistance) {
-                    nearestDistance = distance;
-                    nearestCluster = cluster;
-                }
+        return changed;
+    }
+
+    /**
+     * Reassigns only the candidate points, each to the nearest of the active clusters and the cluster holding it,
+     * and moves the points that changed cluster between the point lists. Clusters keep the points outside the
+     * candidates, so the work is in proportion to the candidates and the clusters they touch.
+     *
+     * @param activeClusters  a flag per cluster, true if the cluster is refined
+     * @param candidates      the indices of the points to reassign
+     * @param candidatePoints the candidate points, as an identity set
+     * @return true if any candidate was assigned to a different cluster than in the previous iteration
+     */
+    private boolean assignCandidatesToClusters(boolean[] activeClusters, int[] candidates, Set<Coordinate> candidatePoints) {
+        // Every cluster holding a candidate before the assignment, or able to take one, rebuilds its list
+        boolean[] touched = activeClusters.clone();
+
+        for (int p : candidates) {
+            if (assignments[p] != -1) {
+                touched[assignments[p]] = true;
             }
+        }
+
+        boolean changed = assignmentEngine.assignCandidates(points, clusters, activeClusters, candidates, assignments);
 
-            if (nearestCluster != null) {
-                nearestCluster.getPoints().add(point);
+        for (int c = 0; c < clusters.size(); c++) {
+            if (touched[c]) {
+                clusters.get(c).getPoints().removeIf(candidatePoints::contains);
             }
         }
+
+        for (int p : candidates) {
+            clusters.get(assignments[p]).getPoints().add(points.get(p));
+        }
+
+        // A frozen page stays where it is, but its cluster rectangle must shrink to the points it kept
+        for (int c = 0; c < clusters.size(); c++) {
+            if (touched[c] && !activeClusters[c]) {
+                clusters.get(c).updateClusterRectangle();
+            }
+        }
+
+        return changed;
     }
 
     /**
@@ -126,42 +939,49 @@ public class KMidRangeClusterer {
      * @return a list of {@code Coordinate} objects not within any cluster's page boundaries
      */
     public List<Coordinate> getPointsNotInPage() {
-        List<Coordinate> pointsNotInPage = new ArrayList<>(points);
+        List<Coordinate> pointsNotInPage = new ArrayList<>();
 
-        for (PageCluster cluster : clusters) {
-            Rectangle2D.Double pageRect = cluster.getPageRectangle();
-
-            if (pageRect != null) {
-                pointsNotInPage.removeIf(point -> pageRect.contains(point.getX(), point.getY()));
-            }
+        for (int p : getUncoveredIndices()) {
+            pointsNotInPage.add(points.get(p));
         }
 
         return pointsNotInPage;
     }
 
     /**
-     * Adds a new cluster to the list of clusters using a randomly selected point that is not
-     * currently within any existing cluster's page rectangle.
+     * Returns the indices of the points that are not contained within any of the clusters' page rectangles.
+     *
+     * @return the indices of the uncovered points, in route order
      */
-    private void addCluster() {
-        List<Coordinate> pointsNotInPage = getPointsNotInPage();
+    private int[] getUncoveredIndices() {
+        getCoverage().update(clusters);
+        return coverage.uncoveredIndices();
+    }
 
-        if (!pointsNotInPage.isEmpty()) {
-            // Select a random point from the points not in any page
-            Coordinate randomPoint = pointsNotInPage.get((int) (Math.random() * pointsNotInPage.size()));
+    /**
+     * Returns the coverage model for the points, creating it on first use.
+     */
+    private PageCoverage getCoverage() {
+        if (coverage == null) {
+            coverage = new PageCoverage(points, Math.max(pageSize.getScaledWidth(), pageSize.getScaledHeight()));
+        }
 
-            // Create a copy of the current pageSize to avoid modifying the original
-            PageSize pageSizeCopy = new PageSize(
-                    pageSize.getUnscaledWidth(),
-                    pageSize.getUnscaledHeight(),
-                    pageSize.getScale(),
-                    pageSize.getOrientation(),
-                    pageSize.getPageSize()
-            );
+        return coverage;
+    }
+
+    /**
+     * Adds a new cluster to the list of clusters, starting from an uncovered point chosen by the
+     * seeding strategy.
+     *
+     * @param uncovered the indices of the points not within any existing cluster's page rectangle
+     */
+    private void addCluster(int[] uncovered) {
+        if (uncovered.length > 0) {
+            Coordinate seed = points.get(seedingStrategy.selectSeed(points, uncovered, clusters, assignments));
 
-            // Create and add the new cluster
-            PageCluster newCluster = new PageCluster(randomPoint, pageSizeCopy);
+            // Create and add the new cluster; clusters never modify the shared page size
+            PageCluster newCluster = new PageCluster(seed, pageSize);
             clusters.add(newCluster);
         }
     }
-}
\ No newline at end of file
+}
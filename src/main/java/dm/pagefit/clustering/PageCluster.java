@@ -1,43 +1,98 @@
 package dm.pagefit.clustering;
 
 import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.CoordinateKernel;
+import dm.pagefit.map.MapRectangle;
+import dm.pagefit.map.PageGeometry;
 import dm.pagefit.map.PageSize;
 import dm.pagefit.map.RectangleUtils;
 
-import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.List;
 
 public class PageCluster implements PageClusterable
 {
     private Coordinate centre; // Center of the cluster
-    private Rectangle2D.Double pageRectangle; // Rectangle representing the page size and orientation
-    private Rectangle2D.Double clusterRectangle; // Bounding box of the cluster points
-    private PageSize pageSize; // Page size and orientation information
+    private MapRectangle pageRectangle; // Rectangle representing the page size and orientation
+    private MapRectangle clusterRectangle; // Bounding box of the cluster points
+    private final PageSize pageSize; // Page size, shared between clusters and never modified
+    private final PageGeometry geometry; // Page dimensions in both orientations
+    private boolean landscape; // Orientation of the page, true for landscape
 
     private List<Coordinate> points = new ArrayList<>(); // List of points in the cluster
+    private double[] packedX = new double[0]; // x-coordinates of the points, packed for the coordinate kernel
+    private double[] packedY = new double[0]; // y-coordinates of the points, packed for the coordinate kernel
     private double averageIndexOfClusterPoints = -1; // Average index of the cluster points in a list of all coordinates
 
     /**
      * Constructs a PageCluster with a specified center and page size.
      *
      * @param centre   the initial center of the cluster
-     * @param pageSize the size and orientation of the page for this cluster
+     * @param pageSize the size and initial orientation of the page for this cluster, which is not modified
+     *                 and so can be shared by every cluster
      */
     public PageCluster(Coordinate centre, PageSize pageSize)
     {
         this.centre = centre;
         this.pageSize = pageSize;
+        this.geometry = pageSize.getGeometry();
+        this.landscape = pageSize.getOrientation();
     }
 
     /**
-     * Returns the PageSize object of this cluster.
+     * Constructs a copy of another PageCluster, with the same centre, page and points. The copy has its own
+     * point list, so either cluster can be refined without affecting the other.
+     *
+     * @param other the cluster to copy
+     */
+    public PageCluster(PageCluster other)
+    {
+        this.centre = other.centre;
+        this.pageRectangle = other.pageRectangle;
+        this.clusterRectangle = other.clusterRectangle;
+        this.pageSize = other.pageSize;
+        this.geometry = other.geometry;
+        this.landscape = other.landscape;
+        this.points = new ArrayList<>(other.points);
+        this.averageIndexOfClusterPoints = other.averageIndexOfClusterPoints;
+    }
+
+    /**
+     * Returns the page size of this cluster, oriented like its page. The result is a new object, so
+     * changing its orientation does not affect the cluster.
      *
      * @return the PageSize of the cluster
      */
     public PageSize getPageSize()
     {
-        return pageSize;
+        PageSize oriented = new PageSize(pageSize);
+
+        if (landscape)
+            oriented.setLandscape();
+        else
+            oriented.setPortrait();
+
+        return oriented;
+    }
+
+    /**
+     * Returns the shared page dimensions of this cluster.
+     *
+     * @return the page geometry
+     */
+    public PageGeometry getPageGeometry()
+    {
+        return geometry;
+    }
+
+    /**
+     * Returns the orientation of this cluster's page.
+     *
+     * @return true for landscape, false for portrait
+     */
+    public boolean isLandscape()
+    {
+        return landscape;
     }
 
     /**
@@ -45,15 +100,47 @@ public class PageCluster implements PageClusterable
      */
     public void updateCluster()
     {
+        packPoints();
+
         if (!points.isEmpty())
         {
             // Calculate the bounding box of the cluster points
-            clusterRectangle = RectangleUtils.createRectangleFromBounds(points);
+            clusterRectangle = RectangleUtils.createRectangleFromBounds(packedX, packedY, points.size());
             // Update the center of the cluster based on the bounding box
             centre = RectangleUtils.getRectangleCentre(clusterRectangle);
         }
 
-        chooseOrientation();
+        chooseOrientationFromPackedPoints();
+    }
+
+    /**
+     * Recalculates the bounding box of the cluster points without moving the centre or the page, for
+     * when points are handed to a page whose position is already final.
+     */
+    void updateClusterRectangle()
+    {
+        packPoints();
+
+        if (!points.isEmpty())
+            clusterRectangle = RectangleUtils.createRectangleFromBounds(packedX, packedY, points.size());
+    }
+
+    /**
+     * Copies the point coordinates into the packed arrays used by the coordinate kernel.
+     */
+    private void packPoints()
+    {
+        if (packedX.length < points.size())
+        {
+            packedX = new double[points.size()];
+            packedY = new double[points.size()];
+        }
+
+        for (int i = 0; i < points.size(); i++)
+        {
+            packedX[i] = points.get(i).getX();
+            packedY[i] = points.get(i).getY();
+        }
     }
 
     /**
@@ -72,6 +159,17 @@ public class PageCluster implements PageClusterable
         averageIndexOfClusterPoints = sum / points.size();
     }
 
+    /**
+     * Sets the average index of the cluster points directly, for callers that already know the
+     * indices of the points and can avoid searching the full coordinate list.
+     *
+     * @param averageIndex the average index of the cluster points
+     */
+    void setAverageIndexOfClusterPoints(double averageIndex)
+    {
+        averageIndexOfClusterPoints = averageIndex;
+    }
+
     /**
      * Returns the average index of the cluster points .
      *
@@ -100,7 +198,7 @@ public class PageCluster implements PageClusterable
      * @return the bounding box of the cluster points
      */
     @Override
-    public Rectangle2D.Double getClusterRectangle()
+    public MapRectangle getClusterRectangle()
     {
         return clusterRectangle;
     }
@@ -111,7 +209,7 @@ public class PageCluster implements PageClusterable
      * @return the page rectangle
      */
     @Override
-    public Rectangle2D.Double getPageRectangle()
+    public MapRectangle getPageRectangle()
     {
         return pageRectangle;
     }
@@ -147,37 +245,37 @@ public class PageCluster implements PageClusterable
      */
     public void chooseOrientation()
     {
-        // Check how many points fit within a portrait-oriented page
-        pageSize.setPortrait();
-        Rectangle2D.Double portraitRectangle = RectangleUtils.createRectangle(centre, pageSize.getScaledWidth(), pageSize.getScaledHeight());
-
-        // Check how many points fit within a landscape-oriented page
-        pageSize.setLandscape();
-        Rectangle2D.Double landscapeRectangle = RectangleUtils.createRectangle(centre, pageSize.getScaledWidth(), pageSize.getScaledHeight());
+        packPoints();
+        chooseOrientationFromPackedPoints();
+    }
 
-        int pointsInPortrait = 0;
-        int pointsInLandscape = 0;
+    /**
+     * Chooses the orientation using the already packed point arrays.
+     */
+    private void chooseOrientationFromPackedPoints()
+    {
+        double cx = centre.getX();
+        double cy = centre.getY();
 
         // Count the number of points in each orientation
-        for (Coordinate point : points)
-        {
-            if (portraitRectangle.contains(point.getX(), point.getY()))
-                pointsInPortrait++;
-
-            if (landscapeRectangle.contains(point.getX(), point.getY()))
-                pointsInLandscape++;
-        }
+        int pointsInPortrait = countContained(cx, cy, false);
+        int pointsInLandscape = countContained(cx, cy, true);
 
         // Choose the orientation that contains the most points
-        if (pointsInPortrait >= pointsInLandscape)
-        {
-            pageRectangle = portraitRectangle;
-            pageSize.setPortrait();
-        }
-        else
-        {
-            pageRectangle = landscapeRectangle;
-            pageSize.setLandscape();
-        }
+        landscape = pointsInPortrait < pointsInLandscape;
+        pageRectangle = geometry.createRectangle(cx, cy, landscape);
+    }
+
+    /**
+     * Counts the packed points on a page centred at the given position, with the same edge rules as
+     * MapRectangle.contains and without allocating the page rectangle.
+     */
+    private int countContained(double cx, double cy, boolean landscape)
+    {
+        double minX = cx - geometry.getHalfWidth(landscape);
+        double minY = cy - geometry.getHalfHeight(landscape);
+
+        return CoordinateKernel.get().countContained(packedX, packedY, points.size(),
+                minX, minY, minX + geometry.getWidth(landscape), minY + geometry.getHeight(landscape));
     }
 }
@@ -1,8 +1,8 @@
 package dm.pagefit.clustering;
 
 import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
 
-import java.awt.geom.Rectangle2D;
 import java.util.List;
 
 //to interface with graphics/gui
@@ -10,7 +10,7 @@ public interface PageClusterable
 {
     double getAverageIndexOfClusterPoints();
     public Coordinate getClusterCentre();
-    public Rectangle2D.Double getClusterRectangle();
-    public Rectangle2D.Double getPageRectangle();
+    public MapRectangle getClusterRectangle();
+    public MapRectangle getPageRectangle();
     public List<Coordinate> getPoints();
 }
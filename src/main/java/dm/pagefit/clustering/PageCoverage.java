@@ -0,0 +1,345 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.CoordinateSource;
+import dm.pagefit.map.MapRectangle;
+import dm.pagefit.map.PointGrid;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code PageCoverage} class tracks which points are covered by which page. Each page holds a {@code long[]}
+ * bitset over the span of point indices it covers, and the set of uncovered points is a bitset kept up to date
+ * as pages change: a page's bits are AND-NOTed out of it when the page is scanned, and a count of the pages
+ * covering each point lets the bits of a page that moves away be restored. Only pages whose rectangle has moved
+ * since the last update are rescanned, through a grid over the points, so checking for uncovered points between
+ * refinements costs work in proportion to the pages that moved rather than a containment test for every point
+ * against every page.
+ * <p>
+ * Memory is one bit per point for the uncovered set and one int per point for the cover counts, plus each page's
+ * span. A route visits most areas once, so a span is usually a few words, not the whole route.
+ */
+public class PageCoverage {
+
+    private final CoordinateSource points;
+    private final int pointCount;
+    private final int words;
+
+    // Point indices bucketed by grid cell
+    private final PointGrid grid;
+
+    // Coverage bits per page, holding only the words from firstWord to lastWord; null for a page with no points
+    private long[][] pageBits = new long[0][];
+    private int[] firstWord = new int[0];
+    private int[] lastWord = new int[0];
+
+    // Page rectangle each page's bits were computed from
+    private MapRectangle[] coveredRectangles = new MapRectangle[0];
+
+    // Number of pages covering each point, and the points covered by none
+    private final int[] coverCount;
+    private final long[] uncovered;
+    private int uncoveredCount;
+
+    // Scratch list of the points found by a page scan
+    private int[] scanned = new int[64];
+
+    /**
+     * Constructs a new {@code PageCoverage} with every point uncovered.
+     *
+     * @param points   the coordinates to track
+     * @param cellSize the size of the grid cells used to find the points inside a page, ideally the longer page side
+     */
+    public PageCoverage(List<Coordinate> points, double cellSize) {
+        this(CoordinateSource.of(points), cellSize);
+    }
+
+    /**
+     * Constructs a new {@code PageCoverage} with every point uncovered, reading the points in place, such as
+     * from a {@link dm.pagefit.map.CoordinateStore}. The points must not change while the coverage is in use. The
+     * cover counts and uncovered set are still on the heap, an int and a bit per point.
+     *
+     * @param points   the coordinates to track
+     * @param cellSize the size of the grid cells used to find the points inside a page, ideally the longer page side
+     */
+    public PageCoverage(CoordinateSource points, double cellSize) {
+        this.points = points;
+        this.pointCount = Math.toIntExact(points.size());
+        this.words = (pointCount + 63) >>> 6;
+        this.coverCount = new int[pointCount];
+        this.uncovered = new long[words];
+        this.grid = new PointGrid(points, cellSize);
+
+        Arrays.fill(uncovered, -1L);
+
+        // Clear the unused bits above the last point
+        if ((pointCount & 63) != 0) {
+            uncovered[words - 1] = (1L << pointCount) - 1;
+        }
+
+        uncoveredCount = pointCount;
+    }
+
+    /**
+     * Brings the coverage up to date with the current page rectangles. Pages whose rectangle has not changed
+     * since the last update keep their bits, and only the pages that changed update the uncovered set.
+     *
+     * @param clusters the pages, indexed as in the clusterer
+     * @return the number of uncovered points
+     */
+    public int update(List<? extends PageClusterable> clusters) {
+        if (clusters.size() != pageBits.length) {
+            resize(clusters.size());
+        }
+
+        for (int c = 0; c < clusters.size(); c++) {
+            MapRectangle pageRect = clusters.get(c).getPageRectangle();
+
+            if (pageRect != null && !pageRect.equals(coveredRectangles[c])) {
+                scanPage(c, pageRect);
+            } else if (pageRect == null && coveredRectangles[c] != null) {
+                clearPage(c);
+            }
+        }
+
+        return uncoveredCount;
+    }
+
+    /**
+     * Returns the number of uncovered points.
+     *
+     * @return the cardinality of the uncovered set
+     */
+    public int uncoveredCount() {
+        return uncoveredCount;
+    }
+
+    /**
+     * Returns the index of the first uncovered point at or after the given index.
+     *
+     * @param from the index to start searching from
+     * @return the index of the next uncovered point, or -1 if there is none
+     */
+    public int nextUncovered(int from) {
+        int w = from >>> 6;
+
+        if (w >= words) {
+            return -1;
+        }
+
+        long word = uncovered[w] & (-1L << from);
+
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+
+            if (++w == words) {
+                return -1;
+            }
+
+            word = uncovered[w];
+        }
+    }
+
+    /**
+     * Returns the indices of the uncovered points.
+     *
+     * @return the uncovered point indices, in route order
+     */
+    public int[] uncoveredIndices() {
+        int[] indices = new int[uncoveredCount()];
+        int i = 0;
+
+        for (int p = nextUncovered(0); p >= 0; p = nextUncovered(p + 1)) {
+            indices[i++] = p;
+        }
+
+        return indices;
+    }
+
+    /**
+     * Returns the indices of the points inside a rectangle, covered or not, found through the same grid the pages
+     * are scanned with.
+     *
+     * @param area the rectangle
+     * @return the point indices, in route order
+     */
+    public int[] pointsIn(MapRectangle area) {
+        return grid.indicesIn(area);
+    }
+
+    /**
+     * Returns the number of points a page covered at the last update.
+     *
+     * @param page the index of the page
+     * @return the number of points inside the page rectangle
+     */
+    int coveredCount(int page) {
+        int count = 0;
+
+        if (pageBits[page] != null) {
+            for (long word : pageBits[page]) {
+                count += Long.bitCount(word);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns whether every point a page covers is also covered by another page, so that removing the page
+     * would leave no point uncovered. Only the words of the page's own span are read.
+     *
+     * @param page the index of the page
+     * @return true if the page is redundant
+     */
+    boolean isCoveredElsewhere(int page) {
+        long[] bits = pageBits[page];
+
+        if (bits == null) {
+            return true;
+        }
+
+        for (int w = firstWord[page]; w <= lastWord[page]; w++) {
+            long word = bits[w - firstWord[page]];
+
+            while (word != 0) {
+                int p = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                if (coverCount[p] < 2) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes a page's coverage as if it had no rectangle, decrementing the cover counts over its span. The next
+     * update scans the page again unless it has also been dropped from the list.
+     *
+     * @param page the index of the page
+     */
+    void removePage(int page) {
+        clearPage(page);
+    }
+
+    /**
+     * Recomputes a page's bits from the points in the grid cells its rectangle overlaps, and AND-NOTs them out of
+     * the uncovered set.
+     */
+    private void scanPage(int page, MapRectangle pageRect) {
+        clearPage(page);
+        coveredRectangles[page] = pageRect;
+
+        double rectMinX = pageRect.getMinX();
+        double rectMinY = pageRect.getMinY();
+        double rectMaxX = pageRect.getMaxX();
+        double rectMaxY = pageRect.getMaxY();
+
+        if (pageRect.isEmpty()) {
+            return;
+        }
+
+        int found = 0;
+        int first = words;
+        int last = -1;
+
+        for (int y = grid.cellY(rectMinY); y <= grid.cellY(rectMaxY); y++) {
+            for (int x = grid.cellX(rectMinX); x <= grid.cellX(rectMaxX); x++) {
+                int cell = grid.cell(x, y);
+
+                for (int i = grid.cellStart(cell); i < grid.cellEnd(cell); i++) {
+                    int p = grid.item(i);
+                    double px = points.getX(p);
+                    double py = points.getY(p);
+
+                    // Same edge rules as MapRectangle.contains
+                    if (px >= rectMinX && py >= rectMinY && px < rectMaxX && py < rectMaxY) {
+                        if (found == scanned.length) {
+                            scanned = Arrays.copyOf(scanned, 2 * found);
+                        }
+
+                        scanned[found++] = p;
+                        first = Math.min(first, p >>> 6);
+                        last = Math.max(last, p >>> 6);
+                    }
+                }
+            }
+        }
+
+        if (found == 0) {
+            return;
+        }
+
+        long[] bits = new long[last - first + 1];
+
+        for (int i = 0; i < found; i++) {
+            int p = scanned[i];
+            bits[(p >>> 6) - first] |= 1L << p;
+            coverCount[p]++;
+        }
+
+        for (int w = first; w <= last; w++) {
+            uncoveredCount -= Long.bitCount(uncovered[w] & bits[w - first]);
+            uncovered[w] &= ~bits[w - first];
+        }
+
+        pageBits[page] = bits;
+        firstWord[page] = first;
+        lastWord[page] = last;
+    }
+
+    /**
+     * Removes a page's bits, returning the points no other page covers to the uncovered set.
+     */
+    private void clearPage(int page) {
+        long[] bits = pageBits[page];
+
+        if (bits != null) {
+            for (int w = firstWord[page]; w <= lastWord[page]; w++) {
+                long word = bits[w - firstWord[page]];
+
+                while (word != 0) {
+                    int p = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+
+                    if (--coverCount[p] == 0) {
+                        uncovered[w] |= 1L << p;
+                        uncoveredCount++;
+                    }
+                }
+            }
+        }
+
+        pageBits[page] = null;
+        firstWord[page] = words;
+        lastWord[page] = -1;
+        coveredRectangles[page] = null;
+    }
+
+    private void resize(int pageCount) {
+        // A page's bits depend only on its rectangle, so surviving pages are rescanned only if their rectangle
+        // differs; pages beyond the new count are removed
+        for (int c = pageCount; c < pageBits.length; c++) {
+            clearPage(c);
+        }
+
+        int previous = Math.min(pageBits.length, pageCount);
+        pageBits = Arrays.copyOf(pageBits, pageCount);
+        firstWord = Arrays.copyOf(firstWord, pageCount);
+        lastWord = Arrays.copyOf(lastWord, pageCount);
+        coveredRectangles = Arrays.copyOf(coveredRectangles, pageCount);
+
+        for (int c = previous; c < pageCount; c++) {
+            pageBits[c] = null;
+            firstWord[c] = words;
+            lastWord[c] = -1;
+            coveredRectangles[c] = null;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable copy of a page cluster's geometry taken during clustering. It holds the centre, the cluster
+ * and page rectangles and the number of assigned points, but not the points themselves, so it is cheap to
+ * create and safe to hand to another thread while the clusterer carries on.
+ */
+public class PageSnapshot implements PageClusterable
+{
+    private final Coordinate centre;
+    private final MapRectangle clusterRectangle;
+    private final MapRectangle pageRectangle;
+    private final int pointCount;
+
+    /**
+     * Constructs a snapshot of the given cluster's current state.
+     *
+     * @param cluster the cluster to copy
+     */
+    public PageSnapshot(PageCluster cluster)
+    {
+        this.centre = cluster.getClusterCentre();
+        this.clusterRectangle = cluster.getClusterRectangle();
+        this.pageRectangle = cluster.getPageRectangle();
+        this.pointCount = cluster.getPoints().size();
+    }
+
+    /**
+     * Returns the number of points assigned to the cluster when the snapshot was taken.
+     *
+     * @return the number of points in the cluster
+     */
+    public int getPointCount()
+    {
+        return pointCount;
+    }
+
+    /**
+     * Snapshots are not ordered, so this always returns -1.
+     *
+     * @return -1
+     */
+    @Override
+    public double getAverageIndexOfClusterPoints()
+    {
+        return -1;
+    }
+
+    @Override
+    public Coordinate getClusterCentre()
+    {
+        return centre;
+    }
+
+    /**
+     * Returns the cluster bounding box, or null if the cluster had no points yet.
+     *
+     * @return the bounding box of the cluster points
+     */
+    @Override
+    public MapRectangle getClusterRectangle()
+    {
+        return clusterRectangle;
+    }
+
+    /**
+     * Returns the page rectangle, or null if no orientation had been chosen yet.
+     *
+     * @return the page rectangle
+     */
+    @Override
+    public MapRectangle getPageRectangle()
+    {
+        return pageRectangle;
+    }
+
+    /**
+     * Snapshots do not carry point lists; use {@link #getPointCount()} instead.
+     *
+     * @return an empty list
+     */
+    @Override
+    public List<Coordinate> getPoints()
+    {
+        return Collections.emptyList();
+    }
+}
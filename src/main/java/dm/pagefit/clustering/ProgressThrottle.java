@@ -0,0 +1,78 @@
+package dm.pagefit.clustering;
+
+/**
+ * Decides how often the clusterer emits progress reports to its listener.
+ * Use one of the factory methods to choose a cadence.
+ */
+public class ProgressThrottle
+{
+    private final int iterationInterval;
+    private final long nanoInterval;
+    private final boolean onNewClusterOnly;
+
+    private long lastEmitNanos = Long.MIN_VALUE;
+
+    private ProgressThrottle(int iterationInterval, long nanoInterval, boolean onNewClusterOnly)
+    {
+        this.iterationInterval = iterationInterval;
+        this.nanoInterval = nanoInterval;
+        this.onNewClusterOnly = onNewClusterOnly;
+    }
+
+    /**
+     * Emits a report every n iterations.
+     *
+     * @param n the number of iterations between reports
+     * @return the throttle
+     */
+    public static ProgressThrottle everyIterations(int n)
+    {
+        return new ProgressThrottle(Math.max(1, n), 0, false);
+    }
+
+    /**
+     * Emits a report at most once every given number of milliseconds.
+     *
+     * @param millis the minimum time between reports
+     * @return the throttle
+     */
+    public static ProgressThrottle everyMillis(long millis)
+    {
+        return new ProgressThrottle(0, Math.max(0, millis) * 1_000_000L, false);
+    }
+
+    /**
+     * Emits a report only on the first iteration after a new cluster is added.
+     *
+     * @return the throttle
+     */
+    public static ProgressThrottle onNewCluster()
+    {
+        return new ProgressThrottle(0, 0, true);
+    }
+
+    /**
+     * Returns whether a report should be emitted for the current iteration. Time-based throttles
+     * record the emission, so this should be called at most once per iteration.
+     *
+     * @param iteration    the number of iterations run so far
+     * @param clusterAdded true if a cluster was added since the previous iteration
+     * @return true if the listener should be notified
+     */
+    boolean shouldEmit(int iteration, boolean clusterAdded)
+    {
+        if (onNewClusterOnly)
+            return clusterAdded;
+
+        if (iterationInterval > 0)
+            return iteration % iterationInterval == 0;
+
+        long now = System.nanoTime();
+
+        if (lastEmitNanos != Long.MIN_VALUE && now - lastEmitNanos < nanoInterval)
+            return false;
+
+        lastEmitNanos = now;
+        return true;
+    }
+}
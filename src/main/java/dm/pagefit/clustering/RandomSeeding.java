@@ -0,0 +1,17 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+
+import java.util.List;
+
+/**
+ * Seeds each new cluster at a uniformly random uncovered point. This is the original behaviour.
+ */
+public class RandomSeeding implements SeedingStrategy
+{
+    @Override
+    public int selectSeed(List<Coordinate> points, int[] uncovered, List<PageCluster> clusters, int[] assignments)
+    {
+        return uncovered[(int) (Math.random() * uncovered.length)];
+    }
+}
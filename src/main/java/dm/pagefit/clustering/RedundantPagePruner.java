@@ -0,0 +1,138 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code RedundantPagePruner} class removes pages whose points are all covered by the page rectangles of
+ * other pages. Coverage is tracked with a {@link PageCoverage}, which holds each page's points as a bitset over
+ * its own span and counts the pages covering each point, so a page is redundant exactly when every point it
+ * covers has a count of two or more, and removing it only decrements the counts over its span. Candidates are
+ * tried smallest first, so pages that contribute least are removed first.
+ */
+public class RedundantPagePruner {
+
+    private final List<Coordinate> points;
+
+    /**
+     * Constructs a new {@code RedundantPagePruner}.
+     *
+     * @param points the full list of coordinates the pages were fitted to
+     */
+    public RedundantPagePruner(List<Coordinate> points) {
+        this.points = points;
+    }
+
+    /**
+     * Removes redundant pages. The points held by a removed page are moved to the first remaining page
+     * whose rectangle contains them, or to the remaining page with the nearest centre if none does; the
+     * remaining pages keep their position and orientation.
+     *
+     * @param clusters the fitted pages
+     * @return the pages that are still needed, in their original order
+     */
+    public List<PageCluster> prune(List<PageCluster> clusters) {
+        if (clusters.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Index the points on cells of roughly one page so each page only visits its neighbourhood
+        MapRectangle firstPage = clusters.get(0).getPageRectangle();
+        double cellSize = firstPage == null ? 1 : Math.max(firstPage.getWidth(), firstPage.getHeight());
+        PageCoverage coverage = new PageCoverage(points, cellSize);
+        coverage.update(clusters);
+
+        boolean[] removed = new boolean[clusters.size()];
+
+        // Try the pages that cover the fewest points first
+        List<Integer> candidates = new ArrayList<>();
+
+        for (int c = 0; c < clusters.size(); c++) {
+            candidates.add(c);
+        }
+
+        candidates.sort(Comparator.comparingInt(coverage::coveredCount));
+
+        // The last page is always kept, so the points it holds have somewhere to go
+        int remainingCount = clusters.size();
+
+        for (int c : candidates) {
+            if (remainingCount > 1 && coverage.isCoveredElsewhere(c)) {
+                coverage.removePage(c);
+                removed[c] = true;
+                remainingCount--;
+            }
+        }
+
+        List<PageCluster> remaining = new ArrayList<>();
+
+        for (int c = 0; c < clusters.size(); c++) {
+            if (!removed[c]) {
+                remaining.add(clusters.get(c));
+            }
+        }
+
+        if (remaining.size() < clusters.size()) {
+            reassignPoints(clusters, remaining, removed);
+        }
+
+        return remaining;
+    }
+
+    /**
+     * Moves the points held by the removed pages to the remaining pages.
+     */
+    private void reassignPoints(List<PageCluster> clusters, List<PageCluster> remaining, boolean[] removed) {
+        Set<PageCluster> receivers = new LinkedHashSet<>();
+
+        for (int c = 0; c < clusters.size(); c++) {
+            if (!removed[c]) {
+                continue;
+            }
+
+            for (Coordinate point : clusters.get(c).getPoints()) {
+                PageCluster receiver = findReceiver(remaining, point);
+                receiver.getPoints().add(point);
+                receivers.add(receiver);
+            }
+
+            clusters.get(c).getPoints().clear();
+        }
+
+        for (PageCluster receiver : receivers) {
+            receiver.updateClusterRectangle();
+        }
+    }
+
+    /**
+     * Finds the first remaining page containing a point. A layout given from outside may hold points that no
+     * page covers; such a point goes to the page with the nearest centre rather than being lost.
+     */
+    private static PageCluster findReceiver(List<PageCluster> remaining, Coordinate point) {
+        PageCluster nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+
+        for (PageCluster cluster : remaining) {
+            MapRectangle pageRect = cluster.getPageRectangle();
+
+            if (pageRect != null && pageRect.contains(point.getX(), point.getY())) {
+                return cluster;
+            }
+
+            double distance = cluster.distance(point);
+
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = cluster;
+            }
+        }
+
+        return nearest;
+    }
+}
@@ -0,0 +1,23 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+
+import java.util.List;
+
+/**
+ * Strategy for choosing the starting position of each new cluster added by {@link KMidRangeClusterer}.
+ * The seed is always one of the points not yet covered by any page.
+ */
+public interface SeedingStrategy
+{
+    /**
+     * Chooses the point a new cluster starts from.
+     *
+     * @param points      the points being clustered
+     * @param uncovered   the indices of the points not covered by any page, in route order; never empty
+     * @param clusters    the current clusters
+     * @param assignments the index of each point's cluster from the last assignment, -1 if unassigned
+     * @return the index into {@code points} of the seed
+     */
+    int selectSeed(List<Coordinate> points, int[] uncovered, List<PageCluster> clusters, int[] assignments);
+}
@@ -0,0 +1,369 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.CoordinateSource;
+import dm.pagefit.map.CoordinateStore;
+import dm.pagefit.map.MapRectangle;
+import dm.pagefit.map.PageSize;
+import dm.pagefit.map.PointGrid;
+import dm.pagefit.map.SpatialGrid;
+
+import java.lang.foreign.Arena;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The {@code SegmentedClusterer} class fits long routes as a chain of overlapping windows along the route index.
+ * Each window is clustered independently and concurrently by its own {@link KMidRangeClusterer}, so wall-clock
+ * time scales with cores and each task only holds its own window. The window layouts are then stitched together:
+ * <ul>
+ *     <li>pages holding points in a seam overlap are dropped if every point they cover is also covered by
+ *     another page, checked against the full route</li>
+ *     <li>every point is handed to the page containing it with the nearest centre, so overlap points are
+ *     held by exactly one page</li>
+ *     <li>neighbouring pages that now fit on a single page are merged with {@link AdjacentPageMerger}</li>
+ * </ul>
+ * Each window covers all of its own points and a page is only dropped when its points stay covered, so the
+ * stitched layout covers the whole route.
+ * <p>
+ * The route can be held off-heap in a {@link CoordinateStore}, which saves loading it as a list first, and the
+ * seam and stitching passes read the store directly through an off-heap {@link PointGrid}. A store-backed fit
+ * still uses heap in proportion to the route, so it does not keep heap size or GC pauses flat:
+ * <ul>
+ *     <li>each window being fitted is copied onto the heap as {@link Coordinate} objects, and its clusterer
+ *     keeps per-point arrays and a {@link PageCoverage} with an int per point</li>
+ *     <li>the final assignment creates a {@link Coordinate} for every route point, and the returned pages hold
+ *     them, about the size of the route as a list</li>
+ * </ul>
+ */
+public class SegmentedClusterer {
+
+    private static final int DEFAULT_WINDOW_POINTS = 10000;
+    private static final int DEFAULT_OVERLAP_POINTS = 500;
+
+    // Route coordinates read by the seam and stitching passes
+    private final CoordinateSource source;
+    // Route coordinates handed to the returned pages
+    private final List<Coordinate> points;
+    private final PageSize pageSize;
+    private final Function<List<Coordinate>, KMidRangeClusterer> windowClusterer;
+    private int windowPoints = DEFAULT_WINDOW_POINTS;
+    private int overlapPoints = DEFAULT_OVERLAP_POINTS;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructs a new {@code SegmentedClusterer} that fits each window with a default {@link KMidRangeClusterer}.
+     *
+     * @param iterationsBeforeAddingNewCluster the number of iterations to perform before adding a new cluster
+     * @param points                           the route coordinates, in route order
+     * @param pageSize                         the page size constraints for clustering
+     */
+    public SegmentedClusterer(int iterationsBeforeAddingNewCluster, List<Coordinate> points, PageSize pageSize) {
+        this(points, pageSize, window -> new KMidRangeClusterer(iterationsBeforeAddingNewCluster, window, pageSize));
+    }
+
+    /**
+     * Constructs a new {@code SegmentedClusterer} with a custom clusterer for each window. The factory is called
+     * once per window, possibly from several threads, and must return a new clusterer each time because
+     * assignment engines and seeding strategies hold per-fit state.
+     *
+     * @param points          the route coordinates, in route order
+     * @param pageSize        the page size the window clusterers use
+     * @param windowClusterer creates the clusterer for a window's coordinates
+     */
+    public SegmentedClusterer(List<Coordinate> points, PageSize pageSize, Function<List<Coordinate>, KMidRangeClusterer> windowClusterer) {
+        this(CoordinateSource.of(points), points, pageSize, windowClusterer);
+    }
+
+    /**
+     * Constructs a new {@code SegmentedClusterer} over a route held off-heap, fitting each window with a default
+     * {@link KMidRangeClusterer}. Windows are read from the store on the worker threads, so it must be allocated
+     * or mapped in an arena that can be accessed from any thread, such as {@link Arena#ofShared()}. The returned
+     * pages hold a heap {@link Coordinate} for every route point.
+     *
+     * @param iterationsBeforeAddingNewCluster the number of iterations to perform before adding a new cluster
+     * @param store                            the route coordinates, in route order
+     * @param pageSize                         the page size constraints for clustering
+     */
+    public SegmentedClusterer(int iterationsBeforeAddingNewCluster, CoordinateStore store, PageSize pageSize) {
+        this(store, pageSize, window -> new KMidRangeClusterer(iterationsBeforeAddingNewCluster, window, pageSize));
+    }
+
+    /**
+     * Constructs a new {@code SegmentedClusterer} over a route held off-heap, with a custom clusterer for each
+     * window. The factory is given a heap copy of the window's coordinates. The store must be accessible from
+     * any thread, as for {@link #SegmentedClusterer(int, CoordinateStore, PageSize)}.
+     *
+     * @param store           the route coordinates, in route order
+     * @param pageSize        the page size the window clusterers use
+     * @param windowClusterer creates the clusterer for a window's coordinates
+     */
+    public SegmentedClusterer(CoordinateStore store, PageSize pageSize, Function<List<Coordinate>, KMidRangeClusterer> windowClusterer) {
+        this(store, store.asList(), pageSize, windowClusterer);
+    }
+
+    private SegmentedClusterer(CoordinateSource source, List<Coordinate> points, PageSize pageSize,
+                               Function<List<Coordinate>, KMidRangeClusterer> windowClusterer) {
+        this.source = source;
+        this.points = points;
+        this.pageSize = pageSize;
+        this.windowClusterer = windowClusterer;
+    }
+
+    /**
+     * Sets the size of the windows and how far neighbouring windows overlap. The overlap should be at least a
+     * page's worth of points, so that pages at the seams can be reconciled rather than cut short.
+     *
+     * @param windowPoints  the number of points in each window
+     * @param overlapPoints the number of points shared by neighbouring windows
+     */
+    public void setWindow(int windowPoints, int overlapPoints) {
+        this.windowPoints = Math.max(2, windowPoints);
+        this.overlapPoints = Math.max(0, Math.min(overlapPoints, this.windowPoints - 1));
+    }
+
+    /**
+     * Sets the number of windows fitted at the same time.
+     *
+     * @param threads the number of concurrent window fits
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Fits every window and stitches the results into a single layout.
+     *
+     * @return the pages, sorted by the average route index of their points
+     */
+    public List<PageCluster> fit() {
+        List<int[]> windows = createWindows();
+        List<List<WindowPage>> windowPages = fitWindows(windows);
+
+        List<PageCluster> clusters = new ArrayList<>();
+        List<WindowPage> seamCandidates = new ArrayList<>();
+
+        for (int w = 0; w < windows.size(); w++) {
+            for (WindowPage page : windowPages.get(w)) {
+                clusters.add(page.cluster());
+
+                if (holdsSeamPoints(page.cluster(), w, windows)) {
+                    seamCandidates.add(page);
+                }
+            }
+        }
+
+        if (clusters.isEmpty()) {
+            return clusters;
+        }
+
+        double pageLength = pageSize.getGeometry().getLongSide();
+        SpatialGrid<PageCluster> pageIndex = new SpatialGrid<>(pageLength);
+
+        for (PageCluster cluster : clusters) {
+            pageIndex.insert(cluster, cluster.getPageRectangle());
+        }
+
+        try (Arena arena = Arena.ofConfined()) {
+            PointGrid pointIndex = new PointGrid(source, pageLength, arena);
+            removeDuplicatePages(clusters, seamCandidates, pointIndex, pageIndex);
+        }
+
+        assignPointsToNearestPage(clusters, pageIndex);
+
+        clusters = new AdjacentPageMerger().merge(clusters);
+
+        return clusters.stream()
+                .sorted(Comparator.comparingDouble(PageCluster::getAverageIndexOfClusterPoints))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Splits the route into overlapping index ranges.
+     *
+     * @return the [from, to) range of each window
+     */
+    private List<int[]> createWindows() {
+        List<int[]> windows = new ArrayList<>();
+        int stride = windowPoints - overlapPoints;
+
+        int size = Math.toIntExact(source.size());
+
+        for (int from = 0; from < size; from += stride) {
+            int to = Math.min(size, from + windowPoints);
+            windows.add(new int[]{from, to});
+
+            if (to == size) {
+                break;
+            }
+        }
+
+        return windows;
+    }
+
+    /**
+     * Fits the windows concurrently. Each task copies its window onto the heap and releases the window's points
+     * once fitted, since stitching reassigns every point, so only the windows being fitted hold points.
+     *
+     * @return the pages of each window, in window order
+     */
+    private List<List<WindowPage>> fitWindows(List<int[]> windows) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, windows.size())));
+        List<Future<List<WindowPage>>> results = new ArrayList<>();
+
+        for (int[] window : windows) {
+            results.add(executor.submit(() -> fitWindow(window)));
+        }
+
+        List<List<WindowPage>> windowPages = new ArrayList<>();
+
+        try {
+            for (Future<List<WindowPage>> result : results) {
+                windowPages.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fitting route windows", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Fitting a route window failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return windowPages;
+    }
+
+    private List<WindowPage> fitWindow(int[] window) {
+        List<Coordinate> windowPoints = new ArrayList<>(points.subList(window[0], window[1]));
+        List<WindowPage> pages = new ArrayList<>();
+
+        for (PageCluster cluster : windowClusterer.apply(windowPoints).fit()) {
+            pages.add(new WindowPage(cluster, cluster.getPoints().size()));
+            cluster.getPoints().clear();
+        }
+
+        return pages;
+    }
+
+    /**
+     * Returns whether a window's page covers any point that the previous or next window also covers.
+     */
+    private boolean holdsSeamPoints(PageCluster cluster, int window, List<int[]> windows) {
+        int from = windows.get(window)[0];
+        int to = windows.get(window)[1];
+        int overlapBefore = window > 0 ? windows.get(window - 1)[1] : from;
+        int overlapAfter = window < windows.size() - 1 ? windows.get(window + 1)[0] : to;
+
+        return coversAny(cluster, from, overlapBefore) || coversAny(cluster, overlapAfter, to);
+    }
+
+    private boolean coversAny(PageCluster cluster, int from, int to) {
+        for (int p = from; p < to; p++) {
+            if (cluster.getPageRectangle().contains(source.getX(p), source.getY(p))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Drops seam pages, smallest first, whose covered points are all inside another remaining page. Coverage is
+     * checked against every route point inside the page, so points from other windows are never uncovered.
+     */
+    private void removeDuplicatePages(List<PageCluster> clusters, List<WindowPage> candidates,
+                                      PointGrid pointIndex, SpatialGrid<PageCluster> pageIndex) {
+        candidates.sort(Comparator.comparingInt(WindowPage::pointCount));
+
+        for (WindowPage page : candidates) {
+            PageCluster candidate = page.cluster();
+            MapRectangle pageRect = candidate.getPageRectangle();
+
+            if (pointIndex.allMatch(pageRect, p -> findCover(source.getX(p), source.getY(p), candidate, pageIndex) != null)) {
+                pageIndex.remove(candidate, pageRect);
+                clusters.remove(candidate);
+            }
+        }
+    }
+
+    /**
+     * Returns a page other than the excluded one that contains the point, or null if there is none.
+     */
+    private static PageCluster findCover(double x, double y, PageCluster excluded, SpatialGrid<PageCluster> pageIndex) {
+        for (PageCluster cluster : pageIndex.query(new MapRectangle(x, y, 0, 0))) {
+            if (cluster != excluded && cluster.getPageRectangle().contains(x, y)) {
+                return cluster;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Replaces the window point lists, which repeat the overlap points, with a single holder per point: the
+     * page containing the point whose centre is nearest. Pages keep their position, pages left holding no
+     * points are dropped, and the order index of each page is set from the route indices of its new points.
+     */
+    private void assignPointsToNearestPage(List<PageCluster> clusters, SpatialGrid<PageCluster> pageIndex) {
+        Map<PageCluster, Integer> clusterIndex = new IdentityHashMap<>();
+
+        for (PageCluster cluster : clusters) {
+            cluster.getPoints().clear();
+            clusterIndex.put(cluster, clusterIndex.size());
+        }
+
+        double[] indexSums = new double[clusters.size()];
+
+        for (int p = 0; p < source.size(); p++) {
+            double x = source.getX(p);
+            double y = source.getY(p);
+            PageCluster holder = null;
+            double holderDistance = Double.MAX_VALUE;
+
+            for (PageCluster cluster : pageIndex.query(new MapRectangle(x, y, 0, 0))) {
+                double dx = cluster.getClusterCentre().getX() - x;
+                double dy = cluster.getClusterCentre().getY() - y;
+                double distance = dx * dx + dy * dy;
+
+                if (cluster.getPageRectangle().contains(x, y) && (holder == null || distance < holderDistance)) {
+                    holder = cluster;
+                    holderDistance = distance;
+                }
+            }
+
+            if (holder == null) {
+                throw new IllegalStateException("Point " + p + " is not covered by any page after stitching");
+            }
+
+            holder.getPoints().add(points.get(p));
+            indexSums[clusterIndex.get(holder)] += p;
+        }
+
+        for (int c = 0; c < indexSums.length; c++) {
+            PageCluster cluster = clusters.get(c);
+
+            if (!cluster.getPoints().isEmpty()) {
+                cluster.updateClusterRectangle();
+                cluster.setAverageIndexOfClusterPoints(indexSums[c] / cluster.getPoints().size());
+            }
+        }
+
+        // Every point a page without points covers has a nearer page covering it
+        clusters.removeIf(cluster -> cluster.getPoints().isEmpty());
+    }
+
+    /**
+     * A page fitted in one window, with the number of points it held there.
+     */
+    private record WindowPage(PageCluster cluster, int pointCount) {
+    }
+}
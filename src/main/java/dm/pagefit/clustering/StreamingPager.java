@@ -0,0 +1,286 @@
+package dm.pagefit.clustering;
+
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
+import dm.pagefit.map.PageSize;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * The {@code StreamingPager} class pages a track while it is still being recorded. Coordinates are pushed one at
+ * a time, either through {@link #accept(Coordinate)} or as a {@link Flow.Subscriber}, and finished pages are
+ * handed to a consumer as soon as the track has clearly left them.
+ * <p>
+ * The current page grows like {@link RouteWalkPager} until the next point no longer fits in either orientation.
+ * The page is then fixed in place but kept open, so that points on a track doubling back into it are added
+ * without starting a new page. An open page is finalised once the track is more than the departure distance
+ * outside it. Only the open pages are held, and both their number and the points each one holds are capped
+ * (see {@link #setLimits(int, int)}), so memory stays bounded however long the track is, even for a vehicle that
+ * circles one area and never leaves its pages. A page that reaches the point cap, or the oldest open page when
+ * there are too many, is finalised early; the track simply starts a new page if it comes back.
+ * <p>
+ * The push methods are not thread-safe; when used as a subscriber, the publisher's serial signalling applies.
+ */
+public class StreamingPager implements Flow.Subscriber<Coordinate> {
+
+    private static final int DEFAULT_MAX_OPEN_PAGES = 64;
+    private static final int DEFAULT_MAX_PAGE_POINTS = 65536;
+
+    private final PageSize pageSize;
+    private final Consumer<? super PageClusterable> pageConsumer;
+    private final double shortSide;
+    private final double longSide;
+
+    // Distance outside an open page the track must reach before the page is finalised
+    private double departureDistance;
+
+    // Caps on the pages kept open and on the points held by the current or an open page
+    private int maxOpenPages = DEFAULT_MAX_OPEN_PAGES;
+    private int maxPagePoints = DEFAULT_MAX_PAGE_POINTS;
+
+    // Page currently being grown, with the bounding box of its points
+    private final List<Coordinate> currentPoints = new ArrayList<>();
+    private double currentIndexSum;
+    private double minX;
+    private double minY;
+    private double maxX;
+    private double maxY;
+
+    // Fixed pages the track may still return to, oldest first
+    private final List<OpenPage> openPages = new ArrayList<>();
+
+    private long pointCount = 0;
+    private boolean completed = false;
+
+    /**
+     * Constructs a new {@code StreamingPager}.
+     *
+     * @param pageSize     the page size constraints for paging
+     * @param pageConsumer receives each page once it is finalised, in the order pages are finalised
+     */
+    public StreamingPager(PageSize pageSize, Consumer<? super PageClusterable> pageConsumer) {
+        this.pageSize = pageSize;
+        this.pageConsumer = pageConsumer;
+        this.shortSide = pageSize.getGeometry().getShortSide();
+        this.longSide = pageSize.getGeometry().getLongSide();
+        this.departureDistance = longSide;
+    }
+
+    /**
+     * Sets how far outside an open page the track must go before the page is finalised. Defaults to the
+     * longer page side. Larger values merge more returning track into existing pages but keep more pages open.
+     *
+     * @param departureDistance the distance in map units
+     */
+    public void setDepartureDistance(double departureDistance) {
+        this.departureDistance = departureDistance;
+    }
+
+    /**
+     * Sets the caps that bound memory. When a page holds the maximum number of points it is finalised, and when
+     * more pages are open than allowed the oldest is finalised. Finalising early never uncovers a point, but a
+     * track that returns to the area afterwards gets a new, overlapping page. Defaults to 64 open pages and
+     * 65536 points per page.
+     *
+     * @param maxOpenPages  the most pages kept open besides the one being grown, at least 1
+     * @param maxPagePoints the most points held by one page, at least 1
+     */
+    public void setLimits(int maxOpenPages, int maxPagePoints) {
+        this.maxOpenPages = Math.max(1, maxOpenPages);
+        this.maxPagePoints = Math.max(1, maxPagePoints);
+    }
+
+    /**
+     * Adds the next coordinate of the track.
+     *
+     * @param point the coordinate
+     */
+    public void accept(Coordinate point) {
+        if (completed) {
+            throw new IllegalStateException("The track has already been completed");
+        }
+
+        long index = pointCount++;
+        OpenPage containing = findOpenPage(point);
+
+        if (containing != null) {
+            containing.add(point, index);
+
+            if (containing.cluster.getPoints().size() >= maxPagePoints) {
+                openPages.remove(containing);
+                finalisePage(containing);
+            }
+        } else if (currentPoints.isEmpty()) {
+            startPage(point, index);
+        } else {
+            double newMinX = Math.min(minX, point.getX());
+            double newMaxX = Math.max(maxX, point.getX());
+            double newMinY = Math.min(minY, point.getY());
+            double newMaxY = Math.max(maxY, point.getY());
+
+            if (fits(newMaxX - newMinX, newMaxY - newMinY)) {
+                currentPoints.add(point);
+                currentIndexSum += index;
+                minX = newMinX;
+                maxX = newMaxX;
+                minY = newMinY;
+                maxY = newMaxY;
+
+                if (currentPoints.size() >= maxPagePoints) {
+                    closeCurrentPage();
+                }
+            } else {
+                closeCurrentPage();
+                startPage(point, index);
+            }
+        }
+
+        finaliseDepartedPages(point);
+    }
+
+    /**
+     * Ends the track, finalising every page that is still open.
+     */
+    public void complete() {
+        if (completed) {
+            return;
+        }
+
+        completed = true;
+        closeCurrentPage();
+
+        for (OpenPage page : openPages) {
+            finalisePage(page);
+        }
+
+        openPages.clear();
+    }
+
+    /**
+     * Returns the number of pages not yet finalised, including the page currently being grown.
+     *
+     * @return the number of open pages
+     */
+    public int getOpenPageCount() {
+        return openPages.size() + (currentPoints.isEmpty() ? 0 : 1);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(Coordinate item) {
+        accept(item);
+    }
+
+    /**
+     * Finalises the pages for the track received so far, since they are still valid for that part of the track.
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        complete();
+    }
+
+    @Override
+    public void onComplete() {
+        complete();
+    }
+
+    private OpenPage findOpenPage(Coordinate point) {
+        for (OpenPage page : openPages) {
+            if (page.cluster.getPageRectangle().contains(point.getX(), point.getY())) {
+                return page;
+            }
+        }
+
+        return null;
+    }
+
+    private void startPage(Coordinate point, long index) {
+        currentPoints.add(point);
+        currentIndexSum = index;
+        minX = maxX = point.getX();
+        minY = maxY = point.getY();
+    }
+
+    /**
+     * Fixes the current page in place, centred on its points, and keeps it open, finalising the oldest open page
+     * if there are now too many.
+     */
+    private void closeCurrentPage() {
+        if (currentPoints.isEmpty()) {
+            return;
+        }
+
+        PageCluster cluster = new PageCluster(currentPoints.get(0), pageSize);
+        cluster.getPoints().addAll(currentPoints);
+        cluster.updateCluster();
+
+        openPages.add(new OpenPage(cluster, currentIndexSum));
+        currentPoints.clear();
+
+        // Keep the number of open pages bounded, finalising the oldest first
+        while (openPages.size() > maxOpenPages) {
+            finalisePage(openPages.remove(0));
+        }
+    }
+
+    /**
+     * Finalises the open pages the track is now far enough away from.
+     */
+    private void finaliseDepartedPages(Coordinate point) {
+        Iterator<OpenPage> iterator = openPages.iterator();
+
+        while (iterator.hasNext()) {
+            OpenPage page = iterator.next();
+
+            if (distanceOutside(page.cluster.getPageRectangle(), point) > departureDistance) {
+                finalisePage(page);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void finalisePage(OpenPage page) {
+        page.cluster.updateClusterRectangle();
+        page.cluster.setAverageIndexOfClusterPoints(page.indexSum / page.cluster.getPoints().size());
+        pageConsumer.accept(page.cluster);
+    }
+
+    /**
+     * Returns whether a bounding box fits strictly inside the page in either orientation.
+     */
+    private boolean fits(double width, double height) {
+        return (width < shortSide && height < longSide) || (width < longSide && height < shortSide);
+    }
+
+    private static double distanceOutside(MapRectangle rectangle, Coordinate point) {
+        double dx = Math.max(0, Math.max(rectangle.getMinX() - point.getX(), point.getX() - rectangle.getMaxX()));
+        double dy = Math.max(0, Math.max(rectangle.getMinY() - point.getY(), point.getY() - rectangle.getMaxY()));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * A fixed page that can still take points, with the sum of their track indices.
+     */
+    private static class OpenPage {
+        private final PageCluster cluster;
+        private double indexSum;
+
+        OpenPage(PageCluster cluster, double indexSum) {
+            this.cluster = cluster;
+            this.indexSum = indexSum;
+        }
+
+        void add(Coordinate point, long index) {
+            cluster.getPoints().add(point);
+            indexSum += index;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package dm.pagefit.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an 8-bit RGB PNG file one row at a time, so that images far larger than the heap can be
+ * produced without ever holding the whole image in memory. Rows must be written top to bottom and
+ * exactly as many rows as the declared height must be written before the writer is closed.
+ */
+public class PngStreamWriter implements Closeable
+{
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    // Maximum size of a single IDAT chunk
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+    private final DeflaterOutputStream pixelStream;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final int width;
+    private final int height;
+    private int rowsWritten = 0;
+
+    /**
+     * Opens the file and writes the PNG signature and header.
+     *
+     * @param filename file in the current working directory or full pathname
+     * @param width    the image width in pixels
+     * @param height   the image height in pixels
+     * @throws IOException if the file cannot be written
+     */
+    public PngStreamWriter(String filename, int width, int height) throws IOException
+    {
+        this.width = width;
+        this.height = height;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+
+        // The caller never gets a writer to close if the header fails, so close the file here
+        try
+        {
+            out.write(SIGNATURE);
+
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream headerData = new DataOutputStream(header);
+            headerData.writeInt(width);
+            headerData.writeInt(height);
+            headerData.writeByte(8); // bit depth
+            headerData.writeByte(2); // colour type: RGB
+            headerData.writeByte(0); // compression: deflate
+            headerData.writeByte(0); // filter method: adaptive
+            headerData.writeByte(0); // interlace: none
+            writeChunk("IHDR", header.toByteArray(), 0, header.size());
+        }
+        catch (IOException e)
+        {
+            try
+            {
+                out.close();
+            }
+            catch (IOException closeFailure)
+            {
+                e.addSuppressed(closeFailure);
+            }
+
+            deflater.end();
+            throw e;
+        }
+
+        this.pixelStream = new DeflaterOutputStream(new IdatOutputStream(), deflater, CHUNK_SIZE);
+    }
+
+    /**
+     * Writes a single row of pixels.
+     *
+     * @param rgb    packed RGB bytes, three per pixel
+     * @param offset the offset of the row's first byte in the array
+     * @throws IOException if the row cannot be written
+     */
+    public void writeRow(byte[] rgb, int offset) throws IOException
+    {
+        if (rowsWritten >= height)
+            throw new IOException("All " + height + " rows have already been written");
+
+        pixelStream.write(0); // filter type: none
+        pixelStream.write(rgb, offset, width * 3);
+        rowsWritten++;
+    }
+
+    /**
+     * Finishes the compressed pixel data, writes the end chunk and closes the file.
+     *
+     * @throws IOException if the image is incomplete or cannot be written
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            pixelStream.finish();
+
+            if (rowsWritten != height)
+                throw new IOException("Expected " + height + " rows but " + rowsWritten + " were written");
+
+            writeChunk("IEND", new byte[0], 0, 0);
+        }
+        finally
+        {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int offset, int length) throws IOException
+    {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, offset, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Receives compressed pixel data and wraps it in IDAT chunks.
+     */
+    private class IdatOutputStream extends OutputStream
+    {
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if (len > 0)
+                writeChunk("IDAT", b, off, len);
+        }
+    }
+}
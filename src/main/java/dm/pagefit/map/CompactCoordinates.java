@@ -0,0 +1,162 @@
+package dm.pagefit.map;
+
+import java.util.List;
+
+/**
+ * Route coordinates held as {@code float} offsets from the minimum corner of their bounding box. Grid
+ * coordinates such as {@code 412285.237} need a double, but the offsets across a route are small enough that a
+ * float keeps them to well under a millimetre at paper scale. At half the size, twice as many points fit in cache
+ * and in each SIMD vector, so the hot distance loop can run on the offsets.
+ * <p>
+ * Float results are only trusted where rounding cannot change them. {@link #distanceSquaredError(double, double)}
+ * gives a rigorous bound on the error against the double computation, and callers fall back to the double
+ * coordinates for the few points inside that bound, so results are identical to the double path.
+ */
+public final class CompactCoordinates
+{
+    // Bound on the relative error of storing an offset: float rounding plus the double subtraction of the origin,
+    // taken as twice the float unit roundoff to leave ample slack
+    private static final double ROUNDOFF = 0x1p-23;
+
+    // Bounding box origin the offsets are measured from
+    private final double originX;
+    private final double originY;
+
+    private final float[] xs;
+    private final float[] ys;
+
+    // Largest absolute offset of any stored point
+    private double magnitude;
+
+    private CompactCoordinates(double originX, double originY, int size)
+    {
+        this.originX = originX;
+        this.originY = originY;
+        this.xs = new float[size];
+        this.ys = new float[size];
+    }
+
+    /**
+     * Converts coordinates to offsets from the minimum corner of their bounding box.
+     *
+     * @param points the coordinates, in route order
+     * @return the compact coordinates, in the same order
+     */
+    public static CompactCoordinates of(List<Coordinate> points)
+    {
+        double minX = 0;
+        double minY = 0;
+
+        for (int p = 0; p < points.size(); p++)
+        {
+            minX = p == 0 ? points.get(p).getX() : Math.min(minX, points.get(p).getX());
+            minY = p == 0 ? points.get(p).getY() : Math.min(minY, points.get(p).getY());
+        }
+
+        CompactCoordinates compact = new CompactCoordinates(minX, minY, points.size());
+
+        for (int p = 0; p < points.size(); p++)
+            compact.set(p, points.get(p).getX(), points.get(p).getY());
+
+        return compact;
+    }
+
+    private void set(int index, double x, double y)
+    {
+        xs[index] = toOffsetX(x);
+        ys[index] = toOffsetY(y);
+        magnitude = Math.max(magnitude, Math.max(Math.abs(xs[index]), Math.abs(ys[index])));
+    }
+
+    public int size()
+    {
+        return xs.length;
+    }
+
+    public double getOriginX()
+    {
+        return originX;
+    }
+
+    public double getOriginY()
+    {
+        return originY;
+    }
+
+    /**
+     * Returns the x-offsets, indexed as the original points. The array is shared and must not be modified.
+     *
+     * @return the x-offsets
+     */
+    public float[] getXs()
+    {
+        return xs;
+    }
+
+    /**
+     * Returns the y-offsets, indexed as the original points. The array is shared and must not be modified.
+     *
+     * @return the y-offsets
+     */
+    public float[] getYs()
+    {
+        return ys;
+    }
+
+    /**
+     * Returns the largest absolute offset of any stored point, the magnitude the error bounds scale with.
+     *
+     * @return the largest offset in map units
+     */
+    public double getMagnitude()
+    {
+        return magnitude;
+    }
+
+    /**
+     * Converts an x-coordinate, such as a cluster centre, to an offset from the origin.
+     *
+     * @param x the x-coordinate
+     * @return the x-offset
+     */
+    public float toOffsetX(double x)
+    {
+        return (float) (x - originX);
+    }
+
+    /**
+     * Converts a y-coordinate to an offset from the origin.
+     *
+     * @param y the y-coordinate
+     * @return the y-offset
+     */
+    public float toOffsetY(double y)
+    {
+        return (float) (y - originY);
+    }
+
+    /**
+     * Returns a bound on the difference between a squared distance computed in float from offsets, as
+     * {@code dx * dx + dy * dy}, and the exact squared distance between the original double coordinates.
+     * <p>
+     * With {@code u} the float unit roundoff and {@code M} the magnitude, each offset is within {@code u·M} of the
+     * exact offset. The float differences then carry an error of at most {@code 2uM} from the inputs plus
+     * {@code u·|d|} from the subtraction, and the squares and sum add a relative {@code 2u}. Expanding
+     * {@code (d + e)² - d²} gives a first order bound of {@code 4√2·uM·D + 4u·D²} with {@code D} the true
+     * distance, which is at least doubled here, with a second order term, to cover every rounding. {@code D} is
+     * itself bounded from the float result and a coarse bound for {@code D <= 2√2·M}, so the result holds for
+     * any inputs.
+     *
+     * @param distanceSquared the squared distance computed in float
+     * @param magnitude       the largest absolute offset among the points and centre involved
+     * @return the largest possible error in the squared distance
+     */
+    public static double distanceSquaredError(double distanceSquared, double magnitude)
+    {
+        double coarse = 48 * ROUNDOFF * magnitude * magnitude;
+        double distance = Math.sqrt(distanceSquared) + Math.sqrt(coarse);
+        return 4 * Math.sqrt(2) * ROUNDOFF * magnitude * distance
+                + 8 * ROUNDOFF * distance * distance
+                + 128 * ROUNDOFF * ROUNDOFF * magnitude * magnitude;
+    }
+}
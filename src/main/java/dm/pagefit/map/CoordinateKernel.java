@@ -0,0 +1,90 @@
+package dm.pagefit.map;
+
+/**
+ * Bulk operations over coordinates packed into primitive x and y arrays. These loops account for almost
+ * all of the clustering CPU time, so they are kept in one place where a SIMD implementation can be swapped
+ * in for the scalar one.
+ * <p>
+ * {@link #get()} returns the Vector API implementation when the {@code jdk.incubator.vector} module is
+ * present (run with {@code --add-modules jdk.incubator.vector}) and the {@code pagefit.simd} system property
+ * is not set to false, otherwise the scalar implementation. Both give identical results.
+ */
+public interface CoordinateKernel
+{
+    /**
+     * Updates the running nearest-centre search for a range of points against one centre. Any point whose
+     * squared distance to the centre is strictly less than its current best takes this centre.
+     *
+     * @param xs           the x-coordinates of the points
+     * @param ys           the y-coordinates of the points
+     * @param length       the number of points
+     * @param centreX      the x-coordinate of the centre
+     * @param centreY      the y-coordinate of the centre
+     * @param centreIndex  the index recorded for points that take this centre
+     * @param bestDistance the best squared distance found so far for each point; updated in place
+     * @param bestIndex    the index of the best centre found so far for each point; updated in place
+     */
+    void nearestCentre(double[] xs, double[] ys, int length, double centreX, double centreY, int centreIndex,
+                       double[] bestDistance, int[] bestIndex);
+
+    /**
+     * Single precision version of {@link #nearestCentre(double[], double[], int, double, double, int, double[], int[])}
+     * for {@link CompactCoordinates}, which also tracks each point's second smallest squared distance so that
+     * callers can tell whether float rounding could have changed the winner.
+     *
+     * @param xs             the x-offsets of the points
+     * @param ys             the y-offsets of the points
+     * @param length         the number of points
+     * @param centreX        the x-offset of the centre
+     * @param centreY        the y-offset of the centre
+     * @param centreIndex    the index recorded for points that take this centre
+     * @param bestDistance   the best squared distance found so far for each point; updated in place
+     * @param secondDistance the second best squared distance found so far for each point; updated in place
+     * @param bestIndex      the index of the best centre found so far for each point; updated in place
+     */
+    void nearestCentre(float[] xs, float[] ys, int length, float centreX, float centreY, int centreIndex,
+                       float[] bestDistance, float[] secondDistance, int[] bestIndex);
+
+    /**
+     * Counts the points inside a rectangle, using the same edge rules as
+     * {@link MapRectangle#contains(double, double)}: the minimum edges are inside, the maximum edges are not.
+     *
+     * @param xs     the x-coordinates of the points
+     * @param ys     the y-coordinates of the points
+     * @param length the number of points
+     * @param minX   the minimum x of the rectangle
+     * @param minY   the minimum y of the rectangle
+     * @param maxX   the maximum x of the rectangle
+     * @param maxY   the maximum y of the rectangle
+     * @return the number of points inside the rectangle
+     */
+    int countContained(double[] xs, double[] ys, int length, double minX, double minY, double maxX, double maxY);
+
+    /**
+     * Returns the smallest of the first {@code length} values.
+     *
+     * @param values the values
+     * @param length the number of values, at least 1
+     * @return the minimum value
+     */
+    double min(double[] values, int length);
+
+    /**
+     * Returns the largest of the first {@code length} values.
+     *
+     * @param values the values
+     * @param length the number of values, at least 1
+     * @return the maximum value
+     */
+    double max(double[] values, int length);
+
+    /**
+     * Returns the kernel selected for this JVM.
+     *
+     * @return the Vector API kernel if available and enabled, otherwise the scalar kernel
+     */
+    static CoordinateKernel get()
+    {
+        return CoordinateKernelSelection.KERNEL;
+    }
+}
@@ -0,0 +1,25 @@
+package dm.pagefit.map;
+
+/**
+ * Holds the {@link CoordinateKernel} chosen when first used. Kept out of the interface, whose nested classes
+ * would be public.
+ */
+final class CoordinateKernelSelection
+{
+    static final CoordinateKernel KERNEL = select();
+
+    private CoordinateKernelSelection()
+    {
+    }
+
+    private static CoordinateKernel select()
+    {
+        boolean enabled = Boolean.parseBoolean(System.getProperty("pagefit.simd", "true"));
+
+        // Only touch the vector kernel class if its module is resolved, otherwise it cannot link
+        if (enabled && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            return new VectorCoordinateKernel();
+
+        return new ScalarCoordinateKernel();
+    }
+}
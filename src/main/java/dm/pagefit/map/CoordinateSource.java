@@ -0,0 +1,52 @@
+package dm.pagefit.map;
+
+import java.util.List;
+
+/**
+ * Read access to route coordinates by index, for the passes that only need the x and y values of each point.
+ * {@link CoordinateStore} implements it for routes held off-heap, and {@link #of(List)} wraps a route already
+ * on the heap, so the same pass can run over either without copying the route into the other form.
+ */
+public interface CoordinateSource
+{
+    /**
+     * Returns the number of coordinates.
+     *
+     * @return the number of coordinates
+     */
+    long size();
+
+    double getX(long index);
+
+    double getY(long index);
+
+    /**
+     * Returns a source that reads a list of coordinates in place.
+     *
+     * @param points the coordinates, in route order
+     * @return the source, reflecting later changes to the list
+     */
+    static CoordinateSource of(List<Coordinate> points)
+    {
+        return new CoordinateSource()
+        {
+            @Override
+            public long size()
+            {
+                return points.size();
+            }
+
+            @Override
+            public double getX(long index)
+            {
+                return points.get((int) index).getX();
+            }
+
+            @Override
+            public double getY(long index)
+            {
+                return points.get((int) index).getY();
+            }
+        };
+    }
+}
@@ -0,0 +1,214 @@
+package dm.pagefit.map;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Route coordinates held off-heap in a {@link MemorySegment}, as little-endian (x, y) pairs of doubles. The
+ * store is either allocated in an {@link Arena} or mapped straight from a binary route file in the same
+ * layout, so the store itself costs no heap objects and nothing for the garbage collector to trace. The
+ * memory stays valid until its arena is closed. Only the store is off-heap: results that hold points as
+ * {@link Coordinate} objects, such as the pages of a fit, and per-point working arrays, such as cover counts,
+ * are still on the heap and grow with the route.
+ * <p>
+ * Readers index the store directly with {@link #getX(long)} and {@link #getY(long)}. For APIs that take a
+ * {@code List<Coordinate>}, {@link #asList()} gives a read-only view and {@link #toList(long, long)} copies
+ * a window of the route onto the heap.
+ */
+public final class CoordinateStore implements CoordinateSource
+{
+    // Bytes per coordinate: an x and a y double
+    private static final long COORDINATE_BYTES = 2 * Double.BYTES;
+
+    // Largest slice written at once, since a ByteBuffer is limited to an int size
+    private static final long WRITE_CHUNK_BYTES = 1L << 30;
+
+    private static final ValueLayout.OfDouble LAYOUT = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final MemorySegment segment;
+    private final long size;
+
+    private CoordinateStore(MemorySegment segment)
+    {
+        this.segment = segment;
+        this.size = segment.byteSize() / COORDINATE_BYTES;
+    }
+
+    /**
+     * Allocates a store of the given number of coordinates, all initially (0, 0).
+     *
+     * @param arena the arena that owns the memory
+     * @param size  the number of coordinates
+     * @return the store
+     */
+    public static CoordinateStore allocate(Arena arena, long size)
+    {
+        return new CoordinateStore(arena.allocate(size * COORDINATE_BYTES, Double.BYTES));
+    }
+
+    /**
+     * Copies coordinates into a new store.
+     *
+     * @param arena  the arena that owns the memory
+     * @param points the coordinates to copy, in route order
+     * @return the store
+     */
+    public static CoordinateStore copyOf(Arena arena, List<Coordinate> points)
+    {
+        CoordinateStore store = allocate(arena, points.size());
+
+        for (int i = 0; i < points.size(); i++)
+            store.set(i, points.get(i).getX(), points.get(i).getY());
+
+        return store;
+    }
+
+    /**
+     * Maps a binary route file, as written by {@link #write(Path)}, without reading it onto the heap.
+     * The mapping is read-only.
+     *
+     * @param file  the route file
+     * @param arena the arena whose lifetime bounds the mapping
+     * @return the store
+     * @throws IOException if the file cannot be mapped or is not a whole number of coordinates
+     */
+    public static CoordinateStore map(Path file, Arena arena) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long bytes = channel.size();
+
+            if (bytes % COORDINATE_BYTES != 0)
+                throw new IOException("Route file " + file + " is " + bytes + " bytes, not a whole number of coordinates");
+
+            return new CoordinateStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes, arena));
+        }
+    }
+
+    /**
+     * Writes the coordinates to a binary route file that {@link #map(Path, Arena)} can read.
+     *
+     * @param file the file to create or replace
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            long position = 0;
+
+            while (position < segment.byteSize())
+            {
+                long length = Math.min(WRITE_CHUNK_BYTES, segment.byteSize() - position);
+                position += channel.write(segment.asSlice(position, length).asByteBuffer());
+            }
+        }
+    }
+
+    @Override
+    public long size()
+    {
+        return size;
+    }
+
+    @Override
+    public double getX(long index)
+    {
+        return segment.get(LAYOUT, index * COORDINATE_BYTES);
+    }
+
+    @Override
+    public double getY(long index)
+    {
+        return segment.get(LAYOUT, index * COORDINATE_BYTES + Double.BYTES);
+    }
+
+    /**
+     * Sets a coordinate. Fails for a store mapped from a file, which is read-only.
+     *
+     * @param index the index of the coordinate
+     * @param x     the x-coordinate
+     * @param y     the y-coordinate
+     */
+    public void set(long index, double x, double y)
+    {
+        segment.set(LAYOUT, index * COORDINATE_BYTES, x);
+        segment.set(LAYOUT, index * COORDINATE_BYTES + Double.BYTES, y);
+    }
+
+    /**
+     * Returns a new Coordinate holding the values at an index.
+     *
+     * @param index the index of the coordinate
+     * @return the coordinate
+     */
+    public Coordinate get(long index)
+    {
+        return new Coordinate(getX(index), getY(index));
+    }
+
+    /**
+     * Copies a range of the route onto the heap, e.g. one window of a long route.
+     *
+     * @param from the first index, inclusive
+     * @param to   the last index, exclusive
+     * @return the coordinates, in route order
+     */
+    public List<Coordinate> toList(long from, long to)
+    {
+        List<Coordinate> points = new ArrayList<>(Math.toIntExact(to - from));
+
+        for (long i = from; i < to; i++)
+            points.add(get(i));
+
+        return points;
+    }
+
+    /**
+     * Returns a read-only list view of the store. Each call to {@code get} creates a new Coordinate, so the
+     * view suits code that reads coordinates, such as {@code StreamingPager}, but not code that tells points
+     * apart by identity, such as {@code KMidRangeClusterer}, which should be given {@link #toList(long, long)}.
+     *
+     * @return the view, limited to {@link Integer#MAX_VALUE} coordinates
+     */
+    public List<Coordinate> asList()
+    {
+        return new ListView(Math.toIntExact(size));
+    }
+
+    /**
+     * Read-only list view over the store.
+     */
+    private class ListView extends AbstractList<Coordinate> implements RandomAccess
+    {
+        private final int size;
+
+        ListView(int size)
+        {
+            this.size = size;
+        }
+
+        @Override
+        public Coordinate get(int index)
+        {
+            return CoordinateStore.this.get(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+}
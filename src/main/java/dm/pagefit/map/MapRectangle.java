@@ -0,0 +1,194 @@
+package dm.pagefit.map;
+
+/**
+ * An immutable axis-aligned rectangle in map units, used for page and cluster bounds and spatial queries.
+ * It has no dependency on AWT, so the clustering core can run on headless or trimmed runtimes; the render
+ * package converts it to AWT shapes only when drawing.
+ * <p>
+ * The edge rules are those of {@code java.awt.geom.Rectangle2D}, so results are unchanged from the AWT types
+ * it replaces: {@link #contains} includes the minimum edges but not the maximum edges, and {@link #intersects}
+ * is false whenever either rectangle has no area.
+ */
+public final class MapRectangle
+{
+    private final double x;
+    private final double y;
+    private final double width;
+    private final double height;
+
+    /**
+     * Constructs a rectangle from its minimum corner and its size.
+     *
+     * @param x      the minimum x-coordinate
+     * @param y      the minimum y-coordinate
+     * @param width  the width in map units
+     * @param height the height in map units
+     */
+    public MapRectangle(double x, double y, double width, double height)
+    {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Creates a rectangle from its minimum and maximum coordinates.
+     *
+     * @param minX the minimum x-coordinate
+     * @param minY the minimum y-coordinate
+     * @param maxX the maximum x-coordinate
+     * @param maxY the maximum y-coordinate
+     * @return the rectangle
+     */
+    public static MapRectangle fromBounds(double minX, double minY, double maxX, double maxY)
+    {
+        return new MapRectangle(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    public double getX()
+    {
+        return x;
+    }
+
+    public double getY()
+    {
+        return y;
+    }
+
+    public double getWidth()
+    {
+        return width;
+    }
+
+    public double getHeight()
+    {
+        return height;
+    }
+
+    public double getMinX()
+    {
+        return x;
+    }
+
+    public double getMinY()
+    {
+        return y;
+    }
+
+    public double getMaxX()
+    {
+        return x + width;
+    }
+
+    public double getMaxY()
+    {
+        return y + height;
+    }
+
+    public double getCentreX()
+    {
+        return x + width / 2.0;
+    }
+
+    public double getCentreY()
+    {
+        return y + height / 2.0;
+    }
+
+    /**
+     * Returns whether the rectangle has no area.
+     *
+     * @return true if the width or height is not positive
+     */
+    public boolean isEmpty()
+    {
+        return width <= 0 || height <= 0;
+    }
+
+    /**
+     * Returns whether a point lies inside the rectangle. Points on the minimum edges are inside,
+     * points on the maximum edges are not.
+     *
+     * @param px the x-coordinate of the point
+     * @param py the y-coordinate of the point
+     * @return true if the rectangle contains the point
+     */
+    public boolean contains(double px, double py)
+    {
+        return px >= x && py >= y && px < x + width && py < y + height;
+    }
+
+    /**
+     * Returns whether the interiors of two rectangles overlap.
+     *
+     * @param other the other rectangle
+     * @return true if both rectangles have an area and they overlap
+     */
+    public boolean intersects(MapRectangle other)
+    {
+        if (isEmpty() || other.isEmpty())
+            return false;
+
+        return other.x + other.width > x && other.y + other.height > y
+                && other.x < x + width && other.y < y + height;
+    }
+
+    /**
+     * Returns the smallest rectangle containing both rectangles.
+     *
+     * @param other the other rectangle
+     * @return the union of the two rectangles
+     */
+    public MapRectangle union(MapRectangle other)
+    {
+        return fromBounds(Math.min(getMinX(), other.getMinX()), Math.min(getMinY(), other.getMinY()),
+                Math.max(getMaxX(), other.getMaxX()), Math.max(getMaxY(), other.getMaxY()));
+    }
+
+    /**
+     * Returns this rectangle widened by the same margin on every side.
+     *
+     * @param margin the distance to add on each side, in map units
+     * @return the widened rectangle
+     */
+    public MapRectangle grow(double margin)
+    {
+        return new MapRectangle(x - margin, y - margin, width + 2 * margin, height + 2 * margin);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+
+        if (!(o instanceof MapRectangle))
+            return false;
+
+        MapRectangle other = (MapRectangle) o;
+        return Double.compare(x, other.x) == 0 && Double.compare(y, other.y) == 0
+                && Double.compare(width, other.width) == 0 && Double.compare(height, other.height) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = Double.hashCode(x);
+        result = 31 * result + Double.hashCode(y);
+        result = 31 * result + Double.hashCode(width);
+        result = 31 * result + Double.hashCode(height);
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MapRectangle{" +
+                "x=" + x +
+                ", y=" + y +
+                ", width=" + width +
+                ", height=" + height +
+                '}';
+    }
+}
@@ -0,0 +1,114 @@
+package dm.pagefit.map;
+
+/**
+ * Immutable page dimensions in map units for both orientations, with the half-extents precomputed.
+ * Unlike {@link PageSize}, a PageGeometry has no orientation state of its own, so a single instance can be
+ * shared by every cluster and read from several threads. The orientation is passed to each method instead,
+ * using the same convention as {@link PageSize#getOrientation()}: true for landscape, false for portrait.
+ * <p>
+ * Page rectangles follow {@link RectangleUtils#createRectangle}: the minimum corner is the centre minus the
+ * half-extents.
+ */
+public final class PageGeometry
+{
+    private final double portraitWidth;
+    private final double portraitHeight;
+    private final double portraitHalfWidth;
+    private final double portraitHalfHeight;
+    private final double landscapeHalfWidth;
+    private final double landscapeHalfHeight;
+
+    /**
+     * Constructs a PageGeometry from the scaled portrait dimensions of a page.
+     *
+     * @param portraitWidth  the scaled width of the page in portrait orientation
+     * @param portraitHeight the scaled height of the page in portrait orientation
+     */
+    public PageGeometry(double portraitWidth, double portraitHeight)
+    {
+        this.portraitWidth = portraitWidth;
+        this.portraitHeight = portraitHeight;
+        this.portraitHalfWidth = portraitWidth / 2.0;
+        this.portraitHalfHeight = portraitHeight / 2.0;
+        this.landscapeHalfWidth = portraitHeight / 2.0;
+        this.landscapeHalfHeight = portraitWidth / 2.0;
+    }
+
+    /**
+     * Returns the scaled page width in the given orientation.
+     *
+     * @param landscape true for landscape, false for portrait
+     * @return the page width in map units
+     */
+    public double getWidth(boolean landscape)
+    {
+        return landscape ? portraitHeight : portraitWidth;
+    }
+
+    /**
+     * Returns the scaled page height in the given orientation.
+     *
+     * @param landscape true for landscape, false for portrait
+     * @return the page height in map units
+     */
+    public double getHeight(boolean landscape)
+    {
+        return landscape ? portraitWidth : portraitHeight;
+    }
+
+    /**
+     * Returns half the scaled page width in the given orientation.
+     *
+     * @param landscape true for landscape, false for portrait
+     * @return the half-width in map units
+     */
+    public double getHalfWidth(boolean landscape)
+    {
+        return landscape ? landscapeHalfWidth : portraitHalfWidth;
+    }
+
+    /**
+     * Returns half the scaled page height in the given orientation.
+     *
+     * @param landscape true for landscape, false for portrait
+     * @return the half-height in map units
+     */
+    public double getHalfHeight(boolean landscape)
+    {
+        return landscape ? landscapeHalfHeight : portraitHalfHeight;
+    }
+
+    /**
+     * Returns the length of the longer page side.
+     *
+     * @return the long side in map units
+     */
+    public double getLongSide()
+    {
+        return Math.max(portraitWidth, portraitHeight);
+    }
+
+    /**
+     * Returns the length of the shorter page side.
+     *
+     * @return the short side in map units
+     */
+    public double getShortSide()
+    {
+        return Math.min(portraitWidth, portraitHeight);
+    }
+
+    /**
+     * Creates the rectangle of a page centred at the given position.
+     *
+     * @param cx        the x-coordinate of the page centre
+     * @param cy        the y-coordinate of the page centre
+     * @param landscape true for landscape, false for portrait
+     * @return the page rectangle
+     */
+    public MapRectangle createRectangle(double cx, double cy, boolean landscape)
+    {
+        return new MapRectangle(cx - getHalfWidth(landscape), cy - getHalfHeight(landscape),
+                getWidth(landscape), getHeight(landscape));
+    }
+}
@@ -12,6 +12,7 @@ public class PageSize
     private double scale;
     private boolean orientation;
     private String pageSize;
+    private final PageGeometry geometry;
 
     /**
      * Constructs a PageSize object with the given dimensions, scale, and orientation.
@@ -33,6 +34,17 @@ public class PageSize
         // Calculate scaled dimensions based on the scale factor.
         this.scaledPageWidth = width * scale;
         this.scaledPageHeight = height * scale;
+        this.geometry = new PageGeometry(scaledPageWidth, scaledPageHeight);
+    }
+
+    /**
+     * Constructs a copy of another PageSize, so that its orientation can be changed independently.
+     *
+     * @param other the page size to copy
+     */
+    public PageSize(PageSize other)
+    {
+        this(other.unscaledPageWidth, other.unscaledPageHeight, other.scale, other.orientation, other.pageSize);
     }
 
     /**
@@ -87,6 +99,17 @@ public class PageSize
             return scaledPageWidth;
     }
 
+    /**
+     * Returns the immutable scaled dimensions of the page in both orientations, which can be shared
+     * instead of copying this object to change its orientation.
+     *
+     * @return the page geometry
+     */
+    public PageGeometry getGeometry()
+    {
+        return geometry;
+    }
+
     /**
      * Returns the scale factor of the map.
      *
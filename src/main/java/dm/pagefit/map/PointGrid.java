@@ -0,0 +1,254 @@
+package dm.pagefit.map;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A uniform grid over the point indices of a {@link CoordinateSource}, built once with a counting sort. Cell i
+ * holds the items {@code cellStart(i) .. cellEnd(i)}, so the points near a rectangle are found by walking the
+ * cells it overlaps. The item array, one int per point, is either a plain int array or allocated in an
+ * {@link Arena} alongside a {@link CoordinateStore}, in which case the index adds no heap that grows with the
+ * route; only the per-cell offsets, capped at about a million cells, are always on the heap.
+ * <p>
+ * Unlike {@link SpatialGrid}, the grid is fixed once built and covers only the bounds of the points.
+ */
+public final class PointGrid
+{
+    // Upper limit on the number of grid cells, to bound memory for very spread out routes
+    private static final int MAX_CELLS = 1 << 20;
+
+    private final CoordinateSource points;
+
+    // Grid geometry over the bounds of the points
+    private double minX;
+    private double minY;
+    private double cellSize;
+    private int columns;
+    private int rows;
+
+    // Point indices bucketed by cell: cell i holds cellItems[cellStart[i] .. cellStart[i + 1])
+    private final int[] cellStart;
+    private final MemorySegment cellItems;
+
+    /**
+     * Builds a grid over every point, with the item array on the heap.
+     *
+     * @param points   the points to index, at most {@link Integer#MAX_VALUE} of them
+     * @param cellSize the preferred cell size in map units, ideally the longer page side
+     */
+    public PointGrid(CoordinateSource points, double cellSize)
+    {
+        this(points, cellSize, MemorySegment.ofArray(new int[Math.toIntExact(points.size())]));
+    }
+
+    /**
+     * Builds a grid over every point, with the item array allocated off-heap.
+     *
+     * @param points   the points to index, at most {@link Integer#MAX_VALUE} of them
+     * @param cellSize the preferred cell size in map units, ideally the longer page side
+     * @param arena    the arena that owns the item array
+     */
+    public PointGrid(CoordinateSource points, double cellSize, Arena arena)
+    {
+        this(points, cellSize, arena.allocate(points.size() * Integer.BYTES, Integer.BYTES));
+    }
+
+    private PointGrid(CoordinateSource points, double cellSize, MemorySegment cellItems)
+    {
+        this.points = points;
+        int size = Math.toIntExact(points.size());
+        this.cellItems = cellItems;
+
+        setGeometry(cellSize);
+
+        // Counting sort of the points into their cells, recomputing each point's cell rather than storing it
+        cellStart = new int[columns * rows + 1];
+
+        for (int p = 0; p < size; p++)
+            cellStart[cellOf(p) + 1]++;
+
+        for (int i = 0; i < columns * rows; i++)
+            cellStart[i + 1] += cellStart[i];
+
+        int[] fill = new int[columns * rows];
+
+        for (int p = 0; p < size; p++)
+        {
+            int cell = cellOf(p);
+            cellItems.setAtIndex(ValueLayout.JAVA_INT, cellStart[cell] + fill[cell]++, p);
+        }
+    }
+
+    /**
+     * Returns the column of the cell holding an x-coordinate, clamped to the grid.
+     *
+     * @param x the x-coordinate
+     * @return the cell column
+     */
+    public int cellX(double x)
+    {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellSize)));
+    }
+
+    /**
+     * Returns the row of the cell holding a y-coordinate, clamped to the grid.
+     *
+     * @param y the y-coordinate
+     * @return the cell row
+     */
+    public int cellY(double y)
+    {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellSize)));
+    }
+
+    /**
+     * Returns the index of the cell at a column and row.
+     *
+     * @param cellX the cell column
+     * @param cellY the cell row
+     * @return the cell index
+     */
+    public int cell(int cellX, int cellY)
+    {
+        return cellY * columns + cellX;
+    }
+
+    /**
+     * Returns the position of a cell's first item.
+     *
+     * @param cell the cell index
+     * @return the first item position, inclusive
+     */
+    public int cellStart(int cell)
+    {
+        return cellStart[cell];
+    }
+
+    /**
+     * Returns the position after a cell's last item.
+     *
+     * @param cell the cell index
+     * @return the last item position, exclusive
+     */
+    public int cellEnd(int cell)
+    {
+        return cellStart[cell + 1];
+    }
+
+    /**
+     * Returns the point index at an item position.
+     *
+     * @param position the item position
+     * @return the point index
+     */
+    public int item(int position)
+    {
+        return cellItems.getAtIndex(ValueLayout.JAVA_INT, position);
+    }
+
+    /**
+     * Tests every point inside a rectangle, stopping at the first that fails.
+     *
+     * @param area      the rectangle, with the edge rules of {@link MapRectangle#contains(double, double)}
+     * @param predicate the test, given each point index
+     * @return true if every point inside the rectangle passes
+     */
+    public boolean allMatch(MapRectangle area, IntPredicate predicate)
+    {
+        for (int y = cellY(area.getMinY()); y <= cellY(area.getMaxY()); y++)
+        {
+            for (int x = cellX(area.getMinX()); x <= cellX(area.getMaxX()); x++)
+            {
+                int cell = cell(x, y);
+
+                for (int i = cellStart(cell); i < cellEnd(cell); i++)
+                {
+                    int p = item(i);
+
+                    if (area.contains(points.getX(p), points.getY(p)) && !predicate.test(p))
+                        return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the points inside a rectangle.
+     *
+     * @param area the rectangle, with the edge rules of {@link MapRectangle#contains(double, double)}
+     * @return the indices of the points inside, in ascending order
+     */
+    public int[] indicesIn(MapRectangle area)
+    {
+        int[] found = new int[16];
+        int count = 0;
+
+        for (int y = cellY(area.getMinY()); y <= cellY(area.getMaxY()); y++)
+        {
+            for (int x = cellX(area.getMinX()); x <= cellX(area.getMaxX()); x++)
+            {
+                int cell = cell(x, y);
+
+                for (int i = cellStart(cell); i < cellEnd(cell); i++)
+                {
+                    int p = item(i);
+
+                    if (area.contains(points.getX(p), points.getY(p)))
+                    {
+                        if (count == found.length)
+                            found = Arrays.copyOf(found, count * 2);
+
+                        found[count++] = p;
+                    }
+                }
+            }
+        }
+
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    private int cellOf(int p)
+    {
+        return cell(cellX(points.getX(p)), cellY(points.getY(p)));
+    }
+
+    /**
+     * Sizes the grid to the bounds of the points, growing the cells if the preferred size would need too many.
+     */
+    private void setGeometry(double preferredCellSize)
+    {
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (long p = 0; p < points.size(); p++)
+        {
+            minX = Math.min(minX, points.getX(p));
+            minY = Math.min(minY, points.getY(p));
+            maxX = Math.max(maxX, points.getX(p));
+            maxY = Math.max(maxY, points.getY(p));
+        }
+
+        if (points.size() == 0)
+            minX = minY = maxX = maxY = 0;
+
+        double width = maxX - minX;
+        double height = maxY - minY;
+        cellSize = Math.max(preferredCellSize, Math.sqrt(width * height / MAX_CELLS));
+        cellSize = Math.max(cellSize, Math.max(width, height) / MAX_CELLS);
+
+        if (!(cellSize > 0))
+            cellSize = 1;
+
+        columns = (int) (width / cellSize) + 1;
+        rows = (int) (height / cellSize) + 1;
+    }
+}
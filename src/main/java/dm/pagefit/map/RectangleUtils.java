@@ -1,7 +1,7 @@
 package dm.pagefit.map;
 
-import java.awt.geom.Rectangle2D;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Utility class for performing operations related to rectangles, such as creating rectangles from bounds,
@@ -13,12 +13,28 @@ public class RectangleUtils
      * Creates a rectangle from a list of coordinates by calculating the bounding box of the points.
      *
      * @param points the list of coordinates defining the area to be bounded by the rectangle
-     * @return a Rectangle2D.Double object representing the bounding box of the given points
+     * @return a MapRectangle representing the bounding box of the given points
      */
-    public static Rectangle2D.Double createRectangleFromBounds(List<Coordinate> points)
+    public static MapRectangle createRectangleFromBounds(List<Coordinate> points)
     {
         CoordinateBounds bounds = new CoordinateBounds(points);
-        return new Rectangle2D.Double(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight());
+        return new MapRectangle(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight());
+    }
+
+    /**
+     * Creates a rectangle bounding coordinates packed into primitive arrays.
+     *
+     * @param xs     the x-coordinates of the points
+     * @param ys     the y-coordinates of the points
+     * @param length the number of points, at least 1
+     * @return a MapRectangle representing the bounding box of the given points
+     */
+    public static MapRectangle createRectangleFromBounds(double[] xs, double[] ys, int length)
+    {
+        CoordinateKernel kernel = CoordinateKernel.get();
+        double minX = kernel.min(xs, length);
+        double minY = kernel.min(ys, length);
+        return new MapRectangle(minX, minY, kernel.max(xs, length) - minX, kernel.max(ys, length) - minY);
     }
 
     /**
@@ -27,7 +43,7 @@ public class RectangleUtils
      * @param rectangle the rectangle for which the center is to be calculated
      * @return a Coordinate object representing the center of the rectangle
      */
-    public static Coordinate getRectangleCentre(Rectangle2D.Double rectangle)
+    public static Coordinate getRectangleCentre(MapRectangle rectangle)
     {
         double centreX = rectangle.getX() + (rectangle.getWidth() / 2.0);
         double centreY = rectangle.getY() + (rectangle.getHeight() / 2.0);
@@ -40,21 +56,26 @@ public class RectangleUtils
      * @param centre the center coordinate of the rectangle
      * @param width  the width of the rectangle
      * @param height the height of the rectangle
-     * @return a Rectangle2D.Double object representing the rectangle with the specified center, width, and height
+     * @return a MapRectangle representing the rectangle with the specified center, width, and height
      */
-    public static Rectangle2D.Double createRectangle(Coordinate centre, double width, double height)
+    public static MapRectangle createRectangle(Coordinate centre, double width, double height)
     {
         double upperLeftCornerX = centre.getX() - width / 2.0;
         double upperLeftCornerY = centre.getY() - height / 2.0;
-        return new Rectangle2D.Double(upperLeftCornerX, upperLeftCornerY, width, height);
+        return new MapRectangle(upperLeftCornerX, upperLeftCornerY, width, height);
     }
 
     /**
-     * Helper class for calculating the bounding box of a list of coordinates.
+     * Helper class for calculating the bounding box of a list of coordinates. The coordinates are packed
+     * into primitive arrays once and reduced with the {@link CoordinateKernel} when the object is constructed.
      */
     public static class CoordinateBounds
     {
-        private List<Coordinate> points;
+        private final double minX;
+        private final double maxX;
+        private final double minY;
+        private final double maxY;
+        private final boolean empty;
 
         /**
          * Constructs a CoordinateBounds object for the given list of coordinates.
@@ -62,7 +83,21 @@ public class RectangleUtils
          * @param points the list of coordinates for which the bounding box is to be calculated
          */
         public CoordinateBounds(List<Coordinate> points) {
-            this.points = points;
+            int length = points.size();
+            double[] xs = new double[length];
+            double[] ys = new double[length];
+
+            for (int i = 0; i < length; i++) {
+                xs[i] = points.get(i).getX();
+                ys[i] = points.get(i).getY();
+            }
+
+            CoordinateKernel kernel = CoordinateKernel.get();
+            this.empty = length == 0;
+            this.minX = empty ? Double.NaN : kernel.min(xs, length);
+            this.maxX = empty ? Double.NaN : kernel.max(xs, length);
+            this.minY = empty ? Double.NaN : kernel.min(ys, length);
+            this.maxY = empty ? Double.NaN : kernel.max(ys, length);
         }
 
         /**
@@ -71,10 +106,7 @@ public class RectangleUtils
          * @return the minimum x-coordinate
          */
         public double getMinX() {
-            return points.stream()
-                    .mapToDouble(Coordinate::getX)
-                    .min()
-                    .getAsDouble();
+            return checked(minX);
         }
 
         /**
@@ -83,10 +115,7 @@ public class RectangleUtils
          * @return the maximum x-coordinate
          */
         public double getMaxX() {
-            return points.stream()
-                    .mapToDouble(Coordinate::getX)
-                    .max()
-                    .getAsDouble();
+            return checked(maxX);
         }
 
         /**
@@ -95,10 +124,7 @@ public class RectangleUtils
          * @return the minimum y-coordinate
          */
         public double getMinY() {
-            return points.stream()
-                    .mapToDouble(Coordinate::getY)
-                    .min()
-                    .getAsDouble();
+            return checked(minY);
         }
 
         /**
@@ -107,10 +133,7 @@ public class RectangleUtils
          * @return the maximum y-coordinate
          */
         public double getMaxY() {
-            return points.stream()
-                    .mapToDouble(Coordinate::getY)
-                    .max()
-                    .getAsDouble();
+            return checked(maxY);
         }
 
         /**
@@ -130,5 +153,12 @@ public class RectangleUtils
         public double getHeight() {
             return getMaxY() - getMinY();
         }
+
+        private double checked(double bound) {
+            if (empty)
+                throw new NoSuchElementException("No points to bound");
+
+            return bound;
+        }
     }
 }
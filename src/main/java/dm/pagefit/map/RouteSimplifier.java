@@ -0,0 +1,153 @@
+package dm.pagefit.map;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simplifies an oversampled route with the Douglas-Peucker algorithm before clustering. Every removed coordinate
+ * lies within the tolerance of the simplified polyline, and the tolerance is tied to the map scale so that the
+ * detail removed is never more than a fixed distance on the printed page. The simplified route only holds
+ * coordinates from the original list, in their original order, including the first and last.
+ * <p>
+ * Pages fitted to the simplified route are not guaranteed to cover every original coordinate, since a removed
+ * coordinate can sit just outside the page holding its neighbours, so callers must verify coverage against the
+ * full route afterwards.
+ */
+public class RouteSimplifier
+{
+    // Default tolerance in metres on the printed page
+    private static final double DEFAULT_PAPER_TOLERANCE = 0.001;
+
+    // Maximum distance in map units between a removed coordinate and the simplified route
+    private final double tolerance;
+
+    /**
+     * Constructs a RouteSimplifier with a tolerance in map units.
+     *
+     * @param tolerance the maximum distance a removed coordinate may lie from the simplified route
+     */
+    public RouteSimplifier(double tolerance)
+    {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Creates a RouteSimplifier that removes no more than 1 mm of detail on the printed page.
+     *
+     * @param pageSize the page size whose scale sets the tolerance
+     * @return a simplifier for the page size
+     */
+    public static RouteSimplifier forPageSize(PageSize pageSize)
+    {
+        return forPageSize(pageSize, DEFAULT_PAPER_TOLERANCE);
+    }
+
+    /**
+     * Creates a RouteSimplifier whose tolerance is a distance on the printed page.
+     *
+     * @param pageSize       the page size whose scale sets the tolerance
+     * @param paperTolerance the tolerance in metres on the printed page
+     * @return a simplifier for the page size
+     */
+    public static RouteSimplifier forPageSize(PageSize pageSize, double paperTolerance)
+    {
+        return new RouteSimplifier(paperTolerance * pageSize.getScale());
+    }
+
+    /**
+     * Returns the tolerance in map units.
+     *
+     * @return the maximum distance a removed coordinate may lie from the simplified route
+     */
+    public double getTolerance()
+    {
+        return tolerance;
+    }
+
+    /**
+     * Simplifies a route.
+     *
+     * @param route the coordinates of the route, in route order
+     * @return the retained coordinates, in route order
+     */
+    public List<Coordinate> simplify(List<Coordinate> route)
+    {
+        int n = route.size();
+
+        if (n < 3 || tolerance <= 0)
+            return new ArrayList<>(route);
+
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+
+        for (int i = 0; i < n; i++)
+        {
+            xs[i] = route.get(i).getX();
+            ys[i] = route.get(i).getY();
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+
+        // Explicit stack of [first, last] ranges, so long routes cannot overflow the call stack
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        double toleranceSquared = tolerance * tolerance;
+
+        while (top > 0)
+        {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            int farthest = -1;
+            double farthestDistance = toleranceSquared;
+
+            for (int i = first + 1; i < last; i++)
+            {
+                double distance = segmentDistanceSquared(xs[i], ys[i], xs[first], ys[first], xs[last], ys[last]);
+
+                if (distance > farthestDistance)
+                {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+
+            if (farthest != -1)
+            {
+                keep[farthest] = true;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        List<Coordinate> simplified = new ArrayList<>();
+
+        for (int i = 0; i < n; i++)
+            if (keep[i])
+                simplified.add(route.get(i));
+
+        return simplified;
+    }
+
+    /**
+     * Returns the squared distance from a point to the line segment between two other points.
+     */
+    private static double segmentDistanceSquared(double px, double py, double ax, double ay, double bx, double by)
+    {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,82 @@
+package dm.pagefit.map;
+
+/**
+ * Plain loop implementation of {@link CoordinateKernel}, used when the Vector API is unavailable or disabled.
+ */
+public class ScalarCoordinateKernel implements CoordinateKernel
+{
+    @Override
+    public void nearestCentre(double[] xs, double[] ys, int length, double centreX, double centreY, int centreIndex,
+                              double[] bestDistance, int[] bestIndex)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            double dx = centreX - xs[i];
+            double dy = centreY - ys[i];
+            double distance = dx * dx + dy * dy;
+
+            if (distance < bestDistance[i])
+            {
+                bestDistance[i] = distance;
+                bestIndex[i] = centreIndex;
+            }
+        }
+    }
+
+    @Override
+    public void nearestCentre(float[] xs, float[] ys, int length, float centreX, float centreY, int centreIndex,
+                              float[] bestDistance, float[] secondDistance, int[] bestIndex)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            float dx = centreX - xs[i];
+            float dy = centreY - ys[i];
+            float distance = dx * dx + dy * dy;
+
+            if (distance < bestDistance[i])
+            {
+                secondDistance[i] = bestDistance[i];
+                bestDistance[i] = distance;
+                bestIndex[i] = centreIndex;
+            }
+            else if (distance < secondDistance[i])
+            {
+                secondDistance[i] = distance;
+            }
+        }
+    }
+
+    @Override
+    public int countContained(double[] xs, double[] ys, int length, double minX, double minY, double maxX, double maxY)
+    {
+        int count = 0;
+
+        for (int i = 0; i < length; i++)
+            if (xs[i] >= minX && ys[i] >= minY && xs[i] < maxX && ys[i] < maxY)
+                count++;
+
+        return count;
+    }
+
+    @Override
+    public double min(double[] values, int length)
+    {
+        double min = values[0];
+
+        for (int i = 1; i < length; i++)
+            min = Math.min(min, values[i]);
+
+        return min;
+    }
+
+    @Override
+    public double max(double[] values, int length)
+    {
+        double max = values[0];
+
+        for (int i = 1; i < length; i++)
+            max = Math.max(max, values[i]);
+
+        return max;
+    }
+}
@@ -0,0 +1,182 @@
+package dm.pagefit.map;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A uniform grid spatial index. Items are bucketed by the grid cells their location (or bounding
+ * rectangle) falls in, so that a rectangular query only has to look at the items in the cells it overlaps.
+ * Only occupied cells are stored, so the grid can cover an unbounded area.
+ *
+ * @param <T> the type of item stored in the grid
+ */
+public class SpatialGrid<T>
+{
+    private final double cellSize;
+    private final Map<Long, List<T>> cells = new HashMap<>();
+
+    // True once an item spanning several cells has been inserted, in which case query results need de-duplicating
+    private boolean multiCellItems = false;
+
+    /**
+     * Constructs an empty grid.
+     *
+     * @param cellSize the width and height of a grid cell in map units
+     */
+    public SpatialGrid(double cellSize)
+    {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Creates a grid containing each of the given coordinates.
+     *
+     * @param points   the coordinates to index
+     * @param cellSize the width and height of a grid cell in map units
+     * @return a grid of the coordinates
+     */
+    public static SpatialGrid<Coordinate> of(List<Coordinate> points, double cellSize)
+    {
+        SpatialGrid<Coordinate> grid = new SpatialGrid<>(cellSize);
+
+        for (Coordinate point : points)
+            grid.insert(point, point.getX(), point.getY());
+
+        return grid;
+    }
+
+    /**
+     * Inserts an item at a single location.
+     *
+     * @param item the item to insert
+     * @param x    the x-coordinate of the item
+     * @param y    the y-coordinate of the item
+     */
+    public void insert(T item, double x, double y)
+    {
+        cells.computeIfAbsent(key(cell(x), cell(y)), k -> new ArrayList<>()).add(item);
+    }
+
+    /**
+     * Inserts an item into every cell overlapped by its bounding rectangle.
+     *
+     * @param item   the item to insert
+     * @param bounds the bounding rectangle of the item
+     */
+    public void insert(T item, MapRectangle bounds)
+    {
+        int minCellX = cell(bounds.getMinX());
+        int maxCellX = cell(bounds.getMaxX());
+        int minCellY = cell(bounds.getMinY());
+        int maxCellY = cell(bounds.getMaxY());
+
+        if (minCellX != maxCellX || minCellY != maxCellY)
+            multiCellItems = true;
+
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++)
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++)
+                cells.computeIfAbsent(key(cellX, cellY), k -> new ArrayList<>()).add(item);
+    }
+
+    /**
+     * Removes an item previously inserted with the given bounding rectangle.
+     *
+     * @param item   the item to remove
+     * @param bounds the bounding rectangle the item was inserted with
+     */
+    public void remove(T item, MapRectangle bounds)
+    {
+        for (int cellX = cell(bounds.getMinX()); cellX <= cell(bounds.getMaxX()); cellX++)
+        {
+            for (int cellY = cell(bounds.getMinY()); cellY <= cell(bounds.getMaxY()); cellY++)
+            {
+                List<T> items = cells.get(key(cellX, cellY));
+
+                if (items != null)
+                    items.remove(item);
+            }
+        }
+    }
+
+    /**
+     * Returns the items in every cell overlapped by the query area. The result may include items
+     * that lie just outside the area, but never misses one inside it.
+     *
+     * @param area the query rectangle in map units
+     * @return the candidate items, each appearing once
+     */
+    public List<T> query(MapRectangle area)
+    {
+        List<T> result = new ArrayList<>();
+        Set<T> seen = multiCellItems ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+
+        int minCellX = cell(area.getMinX());
+        int maxCellX = cell(area.getMaxX());
+        int minCellY = cell(area.getMinY());
+        int maxCellY = cell(area.getMaxY());
+
+        // Walk whichever is smaller: the cells in the query area or the occupied cells
+        long queryCells = (long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1);
+
+        if (queryCells <= cells.size())
+        {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++)
+                for (int cellY = minCellY; cellY <= maxCellY; cellY++)
+                    addAll(result, seen, cells.get(key(cellX, cellY)));
+        }
+        else
+        {
+            for (Map.Entry<Long, List<T>> entry : cells.entrySet())
+            {
+                int cellX = (int) (entry.getKey() >> 32);
+                int cellY = (int) (long) entry.getKey();
+
+                if (cellX >= minCellX && cellX <= maxCellX && cellY >= minCellY && cellY <= maxCellY)
+                    addAll(result, seen, entry.getValue());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the width and height of a grid cell.
+     *
+     * @return the cell size in map units
+     */
+    public double getCellSize()
+    {
+        return cellSize;
+    }
+
+    private void addAll(List<T> result, Set<T> seen, List<T> items)
+    {
+        if (items == null)
+            return;
+
+        if (seen == null)
+        {
+            result.addAll(items);
+            return;
+        }
+
+        for (T item : items)
+            if (seen.add(item))
+                result.add(item);
+    }
+
+    private int cell(double value)
+    {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private static long key(int cellX, int cellY)
+    {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+}
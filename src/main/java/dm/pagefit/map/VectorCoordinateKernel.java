@@ -0,0 +1,183 @@
+package dm.pagefit.map;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of {@link CoordinateKernel} using the incubating Vector API. Each loop processes
+ * as many points per instruction as the preferred vector width allows and finishes the tail with scalar code.
+ * Only loaded when the {@code jdk.incubator.vector} module is present; see {@link CoordinateKernel#get()}.
+ */
+public class VectorCoordinateKernel implements CoordinateKernel
+{
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    // Int species with the same lane count as DOUBLES, for writing centre indices under a distance mask
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    // Twice the lanes of DOUBLES in the same vector width, for the compact coordinate loops
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    // Int species with the same lane count as FLOATS
+    private static final VectorSpecies<Integer> FLOAT_INTS = VectorSpecies.of(int.class, FLOATS.vectorShape());
+
+    private final ScalarCoordinateKernel scalar = new ScalarCoordinateKernel();
+
+    @Override
+    public void nearestCentre(double[] xs, double[] ys, int length, double centreX, double centreY, int centreIndex,
+                              double[] bestDistance, int[] bestIndex)
+    {
+        int upper = DOUBLES.loopBound(length);
+        DoubleVector cx = DoubleVector.broadcast(DOUBLES, centreX);
+        DoubleVector cy = DoubleVector.broadcast(DOUBLES, centreY);
+        IntVector index = IntVector.broadcast(INTS, centreIndex);
+        int i = 0;
+
+        for (; i < upper; i += DOUBLES.length())
+        {
+            DoubleVector dx = cx.sub(DoubleVector.fromArray(DOUBLES, xs, i));
+            DoubleVector dy = cy.sub(DoubleVector.fromArray(DOUBLES, ys, i));
+            DoubleVector distance = dx.mul(dx).add(dy.mul(dy));
+            DoubleVector best = DoubleVector.fromArray(DOUBLES, bestDistance, i);
+            VectorMask<Double> closer = distance.compare(VectorOperators.LT, best);
+
+            if (closer.anyTrue())
+            {
+                distance.intoArray(bestDistance, i, closer);
+                index.intoArray(bestIndex, i, closer.cast(INTS));
+            }
+        }
+
+        for (; i < length; i++)
+        {
+            double dx = centreX - xs[i];
+            double dy = centreY - ys[i];
+            double distance = dx * dx + dy * dy;
+
+            if (distance < bestDistance[i])
+            {
+                bestDistance[i] = distance;
+                bestIndex[i] = centreIndex;
+            }
+        }
+    }
+
+    @Override
+    public void nearestCentre(float[] xs, float[] ys, int length, float centreX, float centreY, int centreIndex,
+                              float[] bestDistance, float[] secondDistance, int[] bestIndex)
+    {
+        int upper = FLOATS.loopBound(length);
+        FloatVector cx = FloatVector.broadcast(FLOATS, centreX);
+        FloatVector cy = FloatVector.broadcast(FLOATS, centreY);
+        IntVector index = IntVector.broadcast(FLOAT_INTS, centreIndex);
+        int i = 0;
+
+        for (; i < upper; i += FLOATS.length())
+        {
+            FloatVector dx = cx.sub(FloatVector.fromArray(FLOATS, xs, i));
+            FloatVector dy = cy.sub(FloatVector.fromArray(FLOATS, ys, i));
+            FloatVector distance = dx.mul(dx).add(dy.mul(dy));
+            FloatVector best = FloatVector.fromArray(FLOATS, bestDistance, i);
+            FloatVector second = FloatVector.fromArray(FLOATS, secondDistance, i);
+            VectorMask<Float> closer = distance.compare(VectorOperators.LT, best);
+
+            // A closer centre demotes the old best to second; otherwise the distance may still beat the second
+            second.min(distance).blend(best, closer).intoArray(secondDistance, i);
+
+            if (closer.anyTrue())
+            {
+                distance.intoArray(bestDistance, i, closer);
+                index.intoArray(bestIndex, i, closer.cast(FLOAT_INTS));
+            }
+        }
+
+        for (; i < length; i++)
+        {
+            float dx = centreX - xs[i];
+            float dy = centreY - ys[i];
+            float distance = dx * dx + dy * dy;
+
+            if (distance < bestDistance[i])
+            {
+                secondDistance[i] = bestDistance[i];
+                bestDistance[i] = distance;
+                bestIndex[i] = centreIndex;
+            }
+            else if (distance < secondDistance[i])
+            {
+                secondDistance[i] = distance;
+            }
+        }
+    }
+
+    @Override
+    public int countContained(double[] xs, double[] ys, int length, double minX, double minY, double maxX, double maxY)
+    {
+        int upper = DOUBLES.loopBound(length);
+        int count = 0;
+        int i = 0;
+
+        for (; i < upper; i += DOUBLES.length())
+        {
+            DoubleVector x = DoubleVector.fromArray(DOUBLES, xs, i);
+            DoubleVector y = DoubleVector.fromArray(DOUBLES, ys, i);
+            VectorMask<Double> inside = x.compare(VectorOperators.GE, minX)
+                    .and(y.compare(VectorOperators.GE, minY))
+                    .and(x.compare(VectorOperators.LT, maxX))
+                    .and(y.compare(VectorOperators.LT, maxY));
+            count += inside.trueCount();
+        }
+
+        for (; i < length; i++)
+            if (xs[i] >= minX && ys[i] >= minY && xs[i] < maxX && ys[i] < maxY)
+                count++;
+
+        return count;
+    }
+
+    @Override
+    public double min(double[] values, int length)
+    {
+        if (length < DOUBLES.length())
+            return scalar.min(values, length);
+
+        int upper = DOUBLES.loopBound(length);
+        DoubleVector min = DoubleVector.fromArray(DOUBLES, values, 0);
+
+        for (int i = DOUBLES.length(); i < upper; i += DOUBLES.length())
+            min = min.min(DoubleVector.fromArray(DOUBLES, values, i));
+
+        double result = min.reduceLanes(VectorOperators.MIN);
+
+        for (int i = upper; i < length; i++)
+            result = Math.min(result, values[i]);
+
+        return result;
+    }
+
+    @Override
+    public double max(double[] values, int length)
+    {
+        if (length < DOUBLES.length())
+            return scalar.max(values, length);
+
+        int upper = DOUBLES.loopBound(length);
+        DoubleVector max = DoubleVector.fromArray(DOUBLES, values, 0);
+
+        for (int i = DOUBLES.length(); i < upper; i += DOUBLES.length())
+            max = max.max(DoubleVector.fromArray(DOUBLES, values, i));
+
+        double result = max.reduceLanes(VectorOperators.MAX);
+
+        for (int i = upper; i < length; i++)
+            result = Math.max(result, values[i]);
+
+        return result;
+    }
+}
@@ -318,7 +318,7 @@ public class AnimatedGifEncoder {
         // map image pixels to new palette
         int k = 0;
         for (int i = 0; i < nPix; i++) {
-            int index = nq.map(pixels[k++] & 0xff, pixels[k++] & 0xff, pixels[k++] & 0xff);
+            int index = nq.lookup(pixels[k++] & 0xff, pixels[k++] & 0xff, pixels[k++] & 0xff);
             usedEntry[index] = true;
             indexedPixels[i] = (byte) index;
         }
@@ -631,6 +631,15 @@ class NeuQuant {
 
     /* radpower for precomputation */
 
+    /* direct-mapped cache of map() results, keyed on packed BGR */
+    protected static final int cachebits = 12;
+
+    protected static final int cachesize = (((int) 1) << cachebits);
+
+    protected int[] cachekeys = new int[cachesize];
+
+    protected byte[] cachevalues = new byte[cachesize];
+
     /*
      * Initialise network in range (0,0,0) to (255,255,255) and set parameters
      * -----------------------------------------------------------------------
@@ -652,6 +661,8 @@ class NeuQuant {
             freq[i] = intbias / netsize; /* 1/netsize */
             bias[i] = 0;
         }
+        for (i = 0; i < cachesize; i++)
+            cachekeys[i] = -1; /* no packed colour is negative */
     }
 
     public byte[] colorMap() {
@@ -872,6 +883,26 @@ class NeuQuant {
         return (best);
     }
 
+    /*
+     * Memoised map(): rendered frames reuse a handful of colours for almost every
+     * pixel, so remember the last index found for each colour slot and only fall
+     * back to the network search on a miss. Results are identical to map().
+     * ----------------------------------------------------------------------------
+     */
+    public int lookup(int b, int g, int r) {
+
+        int key = (b << 16) | (g << 8) | r;
+        int slot = (key * 0x9E3779B1) >>> (32 - cachebits);
+
+        if (cachekeys[slot] == key)
+            return cachevalues[slot] & 0xff;
+
+        int index = map(b, g, r);
+        cachekeys[slot] = key;
+        cachevalues[slot] = (byte) index;
+        return (index);
+    }
+
     public byte[] process() {
         learn();
         unbiasnet();
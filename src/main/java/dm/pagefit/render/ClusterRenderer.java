@@ -2,11 +2,15 @@ package dm.pagefit.render;
 
 import dm.pagefit.clustering.PageClusterable;
 import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
 
 import java.awt.*;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 /**
  * The ClusterRenderer class extends MapRenderer to provide functionality for rendering clusters
@@ -24,6 +28,27 @@ public class ClusterRenderer extends MapRenderer
     private int POINT_DIAMETER = 4;
     private int CENTROID_DIAMETER = 6;
 
+    // Seed for cluster colours, so a cluster keeps the same colour across frames and outputs
+    private static final long CLUSTER_COLOUR_SEED = 999;
+
+    /**
+     * Returns the colours used to render clusters, one per cluster in list order. The same seed is
+     * always used so the colours are consistent between animation frames and exported images.
+     *
+     * @param count The number of clusters.
+     * @return A list of cluster colours.
+     */
+    public static List<Color> clusterColours(int count)
+    {
+        Random rng = new Random(CLUSTER_COLOUR_SEED);
+        List<Color> colours = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+            colours.add(new Color(rng.nextInt(256), rng.nextInt(256), rng.nextInt(256)));
+
+        return colours;
+    }
+
     /**
      * Constructs a ClusterRenderer with the specified BufferedImage and bounding box.
      * Initializes the base MapRenderer and sets up the transformation based on the bounding box.
@@ -32,7 +57,7 @@ public class ClusterRenderer extends MapRenderer
      * @param image  The BufferedImage onto which the cluster will be rendered.
      * @param bounds The bounding box defining the map space to be rendered.
      */
-    public ClusterRenderer(BufferedImage image, Rectangle2D.Double bounds)
+    public ClusterRenderer(BufferedImage image, MapRectangle bounds)
     {
         super(image);
         transformation.setToBounds(bounds);
@@ -42,6 +67,28 @@ public class ClusterRenderer extends MapRenderer
         g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
     }
 
+    /**
+     * Constructs a ClusterRenderer that draws one tile of a larger output image. The transformation is
+     * set up for the full image size and then offset so that the tile's pixel position maps to (0, 0).
+     *
+     * @param tile        The BufferedImage holding the tile.
+     * @param bounds      The bounding box defining the map space of the full output image.
+     * @param imageWidth  The width of the full output image in pixels.
+     * @param imageHeight The height of the full output image in pixels.
+     * @param tileX       The x pixel position of the tile within the full output image.
+     * @param tileY       The y pixel position of the tile within the full output image.
+     */
+    public ClusterRenderer(BufferedImage tile, MapRectangle bounds, int imageWidth, int imageHeight, int tileX, int tileY)
+    {
+        super(tile);
+        transformation.setToBounds(bounds, imageWidth, imageHeight);
+        transformation.setPixelOffset(tileX, tileY);
+
+        // Set background color and fill the tile
+        g2d.setColor(BACKGROUND_COLOUR);
+        g2d.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+    }
+
     /**
      * Renders a cluster onto the image
      *
@@ -49,10 +96,23 @@ public class ClusterRenderer extends MapRenderer
      * @param clusterColor The color used to render the cluster points.
      */
     public void render(PageClusterable cluster, Color clusterColor)
+    {
+        render(cluster, cluster.getPoints(), clusterColor);
+    }
+
+    /**
+     * Renders a cluster onto the image, drawing only the given subset of its points.
+     * Used when the caller has already culled the points that fall outside the image.
+     *
+     * @param cluster      The cluster to be rendered.
+     * @param points       The cluster points to draw.
+     * @param clusterColor The color used to render the cluster points.
+     */
+    public void render(PageClusterable cluster, List<Coordinate> points, Color clusterColor)
     {
         // Set color for cluster points and draw them
         g2d.setColor(clusterColor);
-        drawPoints(cluster);
+        drawPoints(points);
 
         // Set color for page bounding box and draw it
         g2d.setColor(PAGE_BOUNDING_BOX_COLOUR);
@@ -68,14 +128,24 @@ public class ClusterRenderer extends MapRenderer
     }
 
     /**
-     * Draws the points of the cluster on the image.
+     * Returns how far, in pixels, a rendered point or centroid can extend beyond its coordinate.
+     *
+     * @return the render margin in pixels
+     */
+    public int getRenderMargin()
+    {
+        return Math.max(POINT_DIAMETER, CENTROID_DIAMETER);
+    }
+
+    /**
+     * Draws cluster points on the image.
      * Each point is rendered as a filled circle with a diameter defined by POINT_DIAMETER.
      *
-     * @param cluster The cluster whose points are to be drawn.
+     * @param points The points to be drawn.
      */
-    private void drawPoints(PageClusterable cluster)
+    private void drawPoints(List<Coordinate> points)
     {
-        for (Coordinate point : cluster.getPoints())
+        for (Coordinate point : points)
         {
             double x = transformation.getXCoordinate(point.getX());
             double y = transformation.getYCoordinate(point.getY());
@@ -91,7 +161,11 @@ public class ClusterRenderer extends MapRenderer
      */
     private void drawPageBounds(PageClusterable cluster)
     {
-        Rectangle2D.Double pageBounds = cluster.getPageRectangle();
+        MapRectangle pageBounds = cluster.getPageRectangle();
+
+        if (pageBounds == null)
+            return;
+
         Rectangle2D.Double pageBoundsInMapSpace = createRectangle(pageBounds);
         g2d.draw(pageBoundsInMapSpace);
     }
@@ -103,7 +177,12 @@ public class ClusterRenderer extends MapRenderer
      */
     private void drawClusterBounds(PageClusterable cluster)
     {
-        Rectangle2D.Double clusterBounds = cluster.getClusterRectangle();
+        MapRectangle clusterBounds = cluster.getClusterRectangle();
+
+        // A cluster that has not yet been assigned any points has no bounds
+        if (clusterBounds == null)
+            return;
+
         Rectangle2D.Double clusterBoundsInMapSpace = createRectangle(clusterBounds);
         g2d.draw(clusterBoundsInMapSpace);
     }
@@ -1,15 +1,15 @@
 package dm.pagefit.render;
 
 import dm.pagefit.clustering.ClusterListener;
+import dm.pagefit.clustering.ClusteringProgress;
 import dm.pagefit.clustering.PageClusterable;
 import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
 import dm.pagefit.map.RectangleUtils;
 
 import java.awt.*;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.List;
-import java.util.Random;
 
 /**
  * The ClustererAnimator class is responsible for generating an animated GIF that visualizes clustering.
@@ -18,15 +18,15 @@ import java.util.Random;
  */
 public class ClustererAnimator implements ClusterListener
 {
-    // GIF encoder to manage the creation of the animated GIF
-    private AnimatedGifEncoder gif = new AnimatedGifEncoder();
+    // GIF encoder to manage the creation of the animated GIF, encoding frames on a worker pool
+    private AnimatedGifEncoder gif = new ParallelGifEncoder();
 
     // Dimensions of the animation
     private int animationWidth;
     private int animationHeight;
 
     // Bounding box of the coordinate set
-    private Rectangle2D.Double bounds;
+    private MapRectangle bounds;
 
     /**
      * Constructs a ClustererAnimator object with the specified parameters.
@@ -66,20 +66,29 @@ public class ClustererAnimator implements ClusterListener
         BufferedImage image = new BufferedImage(animationWidth, animationHeight, BufferedImage.TYPE_INT_RGB);
         ClusterRenderer frame = new ClusterRenderer(image, bounds);
 
-        // Use the same seed for the random number generator to ensure consistent colors across frames
-        Random rng = new Random(999);
+        // Colours are seeded so they stay consistent across frames
+        List<Color> colours = ClusterRenderer.clusterColours(clusters.size());
 
         // Render each cluster with a unique color
-        for (PageClusterable cluster : clusters)
-        {
-            Color clusterColor = new Color(rng.nextInt(256), rng.nextInt(256), rng.nextInt(256));
-            frame.render(cluster, clusterColor);
-        }
+        for (int i = 0; i < clusters.size(); i++)
+            frame.render(clusters.get(i), colours.get(i));
 
         // Add the rendered frame to the GIF
         gif.addFrame(image);
     }
 
+    /**
+     * Called while clustering is in progress. Renders the page snapshots as a frame; snapshots carry
+     * no points, so in-progress frames show only the pages, cluster bounds and centroids.
+     *
+     * @param progress The snapshot of the clusters to be rendered in this frame.
+     */
+    @Override
+    public void progress(ClusteringProgress progress)
+    {
+        updated(progress.getPages());
+    }
+
     /**
      * Called when clustering is finished. This method finalizes the GIF creation.
      */
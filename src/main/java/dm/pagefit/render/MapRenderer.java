@@ -1,6 +1,7 @@
 package dm.pagefit.render;
 
 import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
 
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
@@ -44,13 +45,13 @@ public class MapRenderer
     }
 
     /**
-     * Creates a rectangle based on the provided Rectangle2D object.
+     * Creates a rectangle based on the provided map rectangle.
      * The rectangle is transformed to image coordinates.
      *
-     * @param rectangle The Rectangle2D object representing the area to be drawn.
+     * @param rectangle The MapRectangle representing the area to be drawn.
      * @return A new Rectangle2D.Double object representing the transformed rectangle.
      */
-    public Rectangle2D.Double createRectangle(Rectangle2D rectangle)
+    public Rectangle2D.Double createRectangle(MapRectangle rectangle)
     {
         double x = transformation.getXCoordinate(rectangle.getX());
         double y = transformation.getYCoordinate(rectangle.getY());
@@ -75,21 +76,68 @@ public class MapRenderer
         private double scaleY;
 
         /**
-         * Sets the transformation bounds based on the provided Rectangle2D.Double object.
+         * Sets the transformation bounds based on the provided MapRectangle.
          * The method calculates the scaling factors and sets the origin.
          *
          * @param bounds The bounds of the map area to be rendered.
          */
-        public void setToBounds(Rectangle2D.Double bounds)
+        public void setToBounds(MapRectangle bounds)
         {
-            double scaleX = image.getWidth() / bounds.getWidth();
-            double scaleY = image.getHeight() / bounds.getHeight();
+            setToBounds(bounds, image.getWidth(), image.getHeight());
+        }
+
+        /**
+         * Sets the transformation bounds as if the map were being rendered onto an image of the given
+         * dimensions, which may be larger than the image actually being drawn on (e.g. when rendering tiles).
+         *
+         * @param bounds      The bounds of the map area to be rendered.
+         * @param imageWidth  The width of the full output image in pixels.
+         * @param imageHeight The height of the full output image in pixels.
+         */
+        public void setToBounds(MapRectangle bounds, int imageWidth, int imageHeight)
+        {
+            double scaleX = imageWidth / bounds.getWidth();
+            double scaleY = imageHeight / bounds.getHeight();
             double scale = Math.min(scaleX, scaleY);
             this.scaleX = scale;
             this.scaleY = scale;
             this.origin = new Coordinate(bounds.getMinX(), bounds.getMinY());
         }
 
+        /**
+         * Shifts the origin so that the given pixel of the full output image maps to (0, 0) of the
+         * image being drawn on. Must be called after setToBounds.
+         *
+         * @param pixelX The x-offset in image pixels.
+         * @param pixelY The y-offset in image pixels.
+         */
+        public void setPixelOffset(double pixelX, double pixelY)
+        {
+            this.origin = new Coordinate(origin.getX() + pixelX / scaleX, origin.getY() + pixelY / scaleY);
+        }
+
+        /**
+         * Converts an image x-coordinate back to a map x-coordinate.
+         *
+         * @param imageCoordinateX The x-coordinate in image space.
+         * @return The corresponding x-coordinate in map space.
+         */
+        public double getMapXCoordinate(double imageCoordinateX)
+        {
+            return imageCoordinateX / scaleX + origin.getX();
+        }
+
+        /**
+         * Converts an image y-coordinate back to a map y-coordinate.
+         *
+         * @param imageCoordinateY The y-coordinate in image space.
+         * @return The corresponding y-coordinate in map space.
+         */
+        public double getMapYCoordinate(double imageCoordinateY)
+        {
+            return imageCoordinateY / scaleY + origin.getY();
+        }
+
         /**
          * Converts a map x-coordinate to an image x-coordinate using the current scaling and origin.
          *
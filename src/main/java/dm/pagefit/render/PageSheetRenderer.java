@@ -0,0 +1,171 @@
+package dm.pagefit.render;
+
+import dm.pagefit.clustering.PageCluster;
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
+import dm.pagefit.map.PageSize;
+import dm.pagefit.map.SpatialGrid;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The PageSheetRenderer class renders one print sheet per page cluster. Each sheet is cropped to the
+ * cluster's page rectangle and sized to the physical page at the chosen print resolution. Only the route
+ * coordinates inside each page are drawn, found through a spatial index, and sheets are rendered in parallel.
+ */
+public class PageSheetRenderer
+{
+    private static final int DEFAULT_DPI = 300;
+    private static final double METRES_PER_INCH = 0.0254;
+
+    // Full route, indexed so each sheet only visits its own coordinates
+    private final SpatialGrid<Coordinate> routeIndex;
+
+    // Pages to render, one sheet each
+    private final List<PageCluster> clusters;
+
+    // Print resolution in dots per inch
+    private int dpi = DEFAULT_DPI;
+
+    // Number of sheets rendered concurrently
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructs a PageSheetRenderer for the given route and page layout.
+     *
+     * @param route    The route coordinates.
+     * @param clusters The page clusters to render.
+     */
+    public PageSheetRenderer(List<Coordinate> route, List<PageCluster> clusters)
+    {
+        this.clusters = clusters;
+
+        // Cells of roughly one page keep each sheet's lookup to a handful of cells
+        double cellSize = clusters.isEmpty() ? 1 : clusters.get(0).getPageSize().getScaledWidth();
+        this.routeIndex = SpatialGrid.of(route, cellSize);
+    }
+
+    /**
+     * Sets the print resolution of the sheets.
+     *
+     * @param dpi The resolution in dots per inch.
+     */
+    public void setDpi(int dpi)
+    {
+        this.dpi = Math.max(1, dpi);
+    }
+
+    /**
+     * Sets the number of sheets rendered at the same time. Each sheet in progress holds
+     * one full-resolution image in memory.
+     *
+     * @param threads The number of concurrent sheets.
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Renders every sheet and writes each to its own PNG file.
+     *
+     * @param filenamePattern a {@link String#format} pattern taking the 1-based page number, e.g. "page%02d.png"
+     * @return true if every sheet was written successfully, false otherwise
+     */
+    public boolean render(String filenamePattern)
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Color> colours = ClusterRenderer.clusterColours(clusters.size());
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        for (int i = 0; i < clusters.size(); i++)
+        {
+            PageCluster cluster = clusters.get(i);
+            Color colour = colours.get(i);
+            String filename = String.format(filenamePattern, i + 1);
+            results.add(executor.submit(() -> writeSheet(cluster, colour, filename)));
+        }
+
+        boolean ok = true;
+
+        try
+        {
+            for (Future<Boolean> result : results)
+                ok &= result.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            ok = false;
+        }
+        catch (ExecutionException e)
+        {
+            e.printStackTrace();
+            ok = false;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return ok;
+    }
+
+    /**
+     * Renders a single sheet.
+     *
+     * @param cluster The page cluster to render.
+     * @param colour  The colour used for the route points.
+     * @return the rendered sheet
+     */
+    public BufferedImage renderSheet(PageCluster cluster, Color colour)
+    {
+        PageSize pageSize = cluster.getPageSize();
+        int width = (int) Math.round(pageSize.getUnscaledWidth() / METRES_PER_INCH * dpi);
+        int height = (int) Math.round(pageSize.getUnscaledHeight() / METRES_PER_INCH * dpi);
+
+        BufferedImage sheet = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ClusterRenderer renderer = new ClusterRenderer(sheet, cluster.getPageRectangle());
+        renderer.render(cluster, getPointsInPage(cluster.getPageRectangle()), colour);
+
+        return sheet;
+    }
+
+    private boolean writeSheet(PageCluster cluster, Color colour, String filename)
+    {
+        try
+        {
+            return ImageIO.write(renderSheet(cluster, colour), "png", new File(filename));
+        }
+        catch (IOException ioe)
+        {
+            System.err.println("Error writing to file: " + filename);
+            ioe.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the route coordinates that lie within a page rectangle.
+     */
+    private List<Coordinate> getPointsInPage(MapRectangle pageRectangle)
+    {
+        List<Coordinate> pointsInPage = new ArrayList<>();
+
+        for (Coordinate point : routeIndex.query(pageRectangle))
+            if (pageRectangle.contains(point.getX(), point.getY()))
+                pointsInPage.add(point);
+
+        return pointsInPage;
+    }
+}
@@ -0,0 +1,254 @@
+package dm.pagefit.render;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The ParallelGifEncoder class is a variant of AnimatedGifEncoder that quantises, maps and LZW-compresses
+ * several frames concurrently on a worker pool. Each frame is encoded into its own byte block and the
+ * blocks are written to the output stream strictly in the order the frames were added.
+ * <p>
+ * The number of frames waiting to be written is bounded by the backlog size; when the backlog is full
+ * addFrame() blocks until the oldest frame has been encoded and written, so memory stays capped at
+ * roughly backlog frames regardless of animation length.
+ * <p>
+ * Frames depend on those before them, the first carrying the logical screen descriptor and palette, so once a
+ * frame fails to encode or write the animation cannot be completed: the remaining frames are discarded and
+ * addFrame() rejects any more until finish() is called.
+ */
+public class ParallelGifEncoder extends AnimatedGifEncoder
+{
+    // Number of worker threads used to encode frames
+    private final int threads;
+
+    // Maximum number of frames queued or being encoded at any one time
+    private final int maxBacklog;
+
+    // Worker pool, created when the first frame is added and shut down by finish()
+    private ExecutorService executor;
+
+    // Encoded frame blocks in the order the frames were added
+    private final Deque<Future<byte[]>> pendingFrames = new ArrayDeque<>();
+
+    // Index of the next frame to be added
+    private int frameIndex = 0;
+
+    // Set once a frame has failed, after which no more frames are written
+    private boolean failed = false;
+
+    /**
+     * Constructs a ParallelGifEncoder using one worker per available processor
+     * and a backlog of twice that many frames.
+     */
+    public ParallelGifEncoder()
+    {
+        this(Runtime.getRuntime().availableProcessors(), 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a ParallelGifEncoder with the given number of workers and backlog size.
+     *
+     * @param threads    the number of frames encoded concurrently
+     * @param maxBacklog the maximum number of frames held in memory awaiting output
+     */
+    public ParallelGifEncoder(int threads, int maxBacklog)
+    {
+        this.threads = Math.max(1, threads);
+        this.maxBacklog = Math.max(this.threads, maxBacklog);
+    }
+
+    /**
+     * Queues the next GIF frame for encoding. The frame is snapshotted before this method returns,
+     * so the caller may reuse the image. If the backlog is full, blocks until the oldest pending
+     * frame has been written.
+     *
+     * @param im BufferedImage containing frame to write.
+     * @return true if successful, false if this or an earlier frame failed.
+     */
+    @Override
+    public boolean addFrame(BufferedImage im)
+    {
+        if ((im == null) || !started || failed)
+            return false;
+
+        if (!sizeSet)
+        {
+            // use first frame's size
+            setSize(im.getWidth(), im.getHeight());
+        }
+
+        if (executor == null)
+        {
+            // Daemon workers so an unfinished animation never keeps the JVM alive
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "gif-encoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        BufferedImage snapshot = snapshot(im);
+        AnimatedGifEncoder frameEncoder = createFrameEncoder(frameIndex == 0);
+        pendingFrames.add(executor.submit(() -> encodeFrame(frameEncoder, snapshot)));
+        frameIndex++;
+        firstFrame = false;
+
+        // Write out whatever is already complete, waiting only when the backlog is full
+        boolean ok = writeCompletedFrames(false);
+
+        while (ok && pendingFrames.size() >= maxBacklog)
+            ok = writeNextFrame();
+
+        return ok;
+    }
+
+    /**
+     * Waits for all pending frames, writes them in order, then writes the GIF trailer
+     * and releases the worker pool.
+     *
+     * @return false if any frame failed, in which case the output is incomplete
+     */
+    @Override
+    public boolean finish()
+    {
+        if (!started)
+            return false;
+
+        boolean ok = writeCompletedFrames(true);
+
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+
+        pendingFrames.clear();
+        frameIndex = 0;
+        ok = ok && !failed;
+        failed = false;
+
+        return super.finish() && ok;
+    }
+
+    /**
+     * Writes frames from the head of the queue.
+     *
+     * @param waitForAll if true, waits for every pending frame; otherwise stops at the first incomplete one
+     * @return false if a frame failed to encode or write
+     */
+    private boolean writeCompletedFrames(boolean waitForAll)
+    {
+        boolean ok = true;
+
+        while (ok && !pendingFrames.isEmpty() && (waitForAll || pendingFrames.peek().isDone()))
+            ok = writeNextFrame();
+
+        return ok;
+    }
+
+    /**
+     * Waits for the oldest pending frame and writes its encoded block to the output stream.
+     *
+     * @return false if the frame failed to encode or write
+     */
+    private boolean writeNextFrame()
+    {
+        Future<byte[]> next = pendingFrames.poll();
+
+        try
+        {
+            byte[] block = next.get();
+
+            if (block == null)
+                return fail();
+
+            out.write(block);
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return fail();
+        }
+        catch (ExecutionException | IOException e)
+        {
+            return fail();
+        }
+    }
+
+    /**
+     * Marks the animation as failed and discards the frames still pending, since writing frames after a
+     * missing one would produce a corrupt GIF.
+     *
+     * @return false, for the caller to return
+     */
+    private boolean fail()
+    {
+        failed = true;
+
+        for (Future<byte[]> pending : pendingFrames)
+            pending.cancel(true);
+
+        pendingFrames.clear();
+        return false;
+    }
+
+    /**
+     * Copies the frame into a new image of the encoder's size and format so that the worker
+     * never reads an image the caller may still be drawing on.
+     */
+    private BufferedImage snapshot(BufferedImage im)
+    {
+        BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(im, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    /**
+     * Creates a single-frame encoder carrying this encoder's current settings. The frame encoder
+     * writes the same blocks AnimatedGifEncoder would, but into its own buffer.
+     *
+     * @param first true if this is the first frame, which carries the logical screen descriptor and global palette
+     */
+    private AnimatedGifEncoder createFrameEncoder(boolean first)
+    {
+        AnimatedGifEncoder frameEncoder = new AnimatedGifEncoder();
+        frameEncoder.width = width;
+        frameEncoder.height = height;
+        frameEncoder.sizeSet = true;
+        frameEncoder.transparent = transparent;
+        frameEncoder.repeat = repeat;
+        frameEncoder.delay = delay;
+        frameEncoder.dispose = dispose;
+        frameEncoder.sample = sample;
+        frameEncoder.firstFrame = first;
+        return frameEncoder;
+    }
+
+    /**
+     * Quantises, maps and compresses one frame on a worker thread.
+     *
+     * @return the encoded frame block, or null if encoding failed
+     */
+    private static byte[] encodeFrame(AnimatedGifEncoder frameEncoder, BufferedImage image)
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        frameEncoder.out = buffer;
+        frameEncoder.started = true;
+
+        if (!frameEncoder.addFrame(image))
+            return null;
+
+        return buffer.toByteArray();
+    }
+}
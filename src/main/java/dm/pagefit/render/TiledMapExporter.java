@@ -0,0 +1,245 @@
+package dm.pagefit.render;
+
+import dm.pagefit.clustering.PageClusterable;
+import dm.pagefit.io.PngStreamWriter;
+import dm.pagefit.map.Coordinate;
+import dm.pagefit.map.MapRectangle;
+import dm.pagefit.map.SpatialGrid;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The TiledMapExporter class renders a very high resolution overview of a final page layout to a PNG file.
+ * The output is rendered in fixed-size tiles, each drawing only the points that fall inside it (found through
+ * a spatial index), and the rows are streamed to the PNG writer a band of tiles at a time. Peak heap use is
+ * therefore one band of tiles (image width x tile size pixels) rather than the whole image.
+ */
+public class TiledMapExporter
+{
+    private static final int DEFAULT_TILE_SIZE = 512;
+
+    // Clusters to render, in the order they are drawn
+    private final List<? extends PageClusterable> clusters;
+
+    // Dimensions of the full output image
+    private final int imageWidth;
+    private final int imageHeight;
+
+    // Map space covered by the output image
+    private final MapRectangle bounds;
+
+    // Width and height of a rendered tile in pixels
+    private int tileSize = DEFAULT_TILE_SIZE;
+
+    /**
+     * Constructs a TiledMapExporter for the given page layout. The output covers every page and
+     * cluster rectangle in the layout.
+     *
+     * @param clusters    The clusters making up the page layout.
+     * @param imageWidth  The width of the output image in pixels.
+     * @param imageHeight The height of the output image in pixels.
+     */
+    public TiledMapExporter(List<? extends PageClusterable> clusters, int imageWidth, int imageHeight)
+    {
+        this.clusters = clusters;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.bounds = calculateBounds(clusters);
+    }
+
+    /**
+     * Sets the width and height of the tiles the image is rendered in.
+     *
+     * @param tileSize The tile size in pixels.
+     */
+    public void setTileSize(int tileSize)
+    {
+        this.tileSize = Math.max(1, tileSize);
+    }
+
+    /**
+     * Renders the page layout and writes it to a PNG file. An empty layout is written as a blank image.
+     *
+     * @param filename file in the current working directory or full pathname
+     * @return true if the image was written successfully, false otherwise
+     */
+    public boolean export(String filename)
+    {
+        if (bounds == null)
+            return exportBlank(filename);
+
+        SpatialGrid<ClusterPoint> pointIndex = createPointIndex();
+        List<Color> colours = ClusterRenderer.clusterColours(clusters.size());
+        int rowLength = imageWidth * 3;
+        byte[] band = new byte[rowLength * Math.min(tileSize, imageHeight)];
+
+        try (PngStreamWriter png = new PngStreamWriter(filename, imageWidth, imageHeight))
+        {
+            for (int tileY = 0; tileY < imageHeight; tileY += tileSize)
+            {
+                int bandHeight = Math.min(tileSize, imageHeight - tileY);
+
+                for (int tileX = 0; tileX < imageWidth; tileX += tileSize)
+                {
+                    int tileWidth = Math.min(tileSize, imageWidth - tileX);
+                    BufferedImage tile = renderTile(pointIndex, colours, tileX, tileY, tileWidth, bandHeight);
+                    copyTileToBand(tile, band, rowLength, tileX);
+                }
+
+                for (int row = 0; row < bandHeight; row++)
+                    png.writeRow(band, row * rowLength);
+            }
+        }
+        catch (IOException ioe)
+        {
+            System.err.println("Error writing to file: " + filename);
+            ioe.printStackTrace();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes an image filled with the background colour, for a layout with nothing to map onto the image.
+     */
+    private boolean exportBlank(String filename)
+    {
+        byte[] row = new byte[imageWidth * 3];
+        Arrays.fill(row, (byte) 0xff);
+
+        try (PngStreamWriter png = new PngStreamWriter(filename, imageWidth, imageHeight))
+        {
+            for (int y = 0; y < imageHeight; y++)
+                png.writeRow(row, 0);
+        }
+        catch (IOException ioe)
+        {
+            System.err.println("Error writing to file: " + filename);
+            ioe.printStackTrace();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Renders a single tile, drawing only the clusters and points that can appear in it.
+     */
+    private BufferedImage renderTile(SpatialGrid<ClusterPoint> pointIndex, List<Color> colours, int tileX, int tileY, int tileWidth, int tileHeight)
+    {
+        BufferedImage tile = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_3BYTE_BGR);
+        ClusterRenderer renderer = new ClusterRenderer(tile, bounds, imageWidth, imageHeight, tileX, tileY);
+
+        // Map space covered by the tile, widened so points just outside still draw their overlap
+        int margin = renderer.getRenderMargin();
+        MapRenderer.CoordinateTransformation transformation = renderer.transformation;
+        double minX = transformation.getMapXCoordinate(-margin);
+        double minY = transformation.getMapYCoordinate(-margin);
+        double maxX = transformation.getMapXCoordinate(tileWidth + margin);
+        double maxY = transformation.getMapYCoordinate(tileHeight + margin);
+        MapRectangle tileArea = MapRectangle.fromBounds(minX, minY, maxX, maxY);
+
+        // Group the visible points by cluster so clusters are still drawn in order
+        List<List<Coordinate>> visiblePoints = new ArrayList<>(clusters.size());
+
+        for (int i = 0; i < clusters.size(); i++)
+            visiblePoints.add(new ArrayList<>());
+
+        for (ClusterPoint clusterPoint : pointIndex.query(tileArea))
+            visiblePoints.get(clusterPoint.clusterIndex()).add(clusterPoint.point());
+
+        for (int i = 0; i < clusters.size(); i++)
+        {
+            PageClusterable cluster = clusters.get(i);
+
+            if (!visiblePoints.get(i).isEmpty() || intersects(cluster.getPageRectangle(), tileArea)
+                    || intersects(cluster.getClusterRectangle(), tileArea))
+                renderer.render(cluster, visiblePoints.get(i), colours.get(i));
+        }
+
+        return tile;
+    }
+
+    /**
+     * Copies a rendered BGR tile into the RGB band buffer at the given x position.
+     */
+    private void copyTileToBand(BufferedImage tile, byte[] band, int rowLength, int tileX)
+    {
+        byte[] bgr = ((DataBufferByte) tile.getRaster().getDataBuffer()).getData();
+        int tileRowLength = tile.getWidth() * 3;
+
+        for (int row = 0; row < tile.getHeight(); row++)
+        {
+            int source = row * tileRowLength;
+            int target = row * rowLength + tileX * 3;
+
+            for (int i = 0; i < tileRowLength; i += 3)
+            {
+                band[target + i] = bgr[source + i + 2];
+                band[target + i + 1] = bgr[source + i + 1];
+                band[target + i + 2] = bgr[source + i];
+            }
+        }
+    }
+
+    /**
+     * Indexes every cluster point on a grid whose cells are roughly one tile across.
+     */
+    private SpatialGrid<ClusterPoint> createPointIndex()
+    {
+        double scale = Math.min(imageWidth / bounds.getWidth(), imageHeight / bounds.getHeight());
+        SpatialGrid<ClusterPoint> grid = new SpatialGrid<>(tileSize / scale);
+
+        for (int i = 0; i < clusters.size(); i++)
+            for (Coordinate point : clusters.get(i).getPoints())
+                grid.insert(new ClusterPoint(i, point), point.getX(), point.getY());
+
+        return grid;
+    }
+
+    private static boolean intersects(MapRectangle rectangle, MapRectangle area)
+    {
+        return rectangle != null && rectangle.intersects(area);
+    }
+
+    /**
+     * Returns the union of every page and cluster rectangle in the layout.
+     */
+    private static MapRectangle calculateBounds(List<? extends PageClusterable> clusters)
+    {
+        MapRectangle bounds = null;
+
+        for (PageClusterable cluster : clusters)
+        {
+            bounds = union(bounds, cluster.getPageRectangle());
+            bounds = union(bounds, cluster.getClusterRectangle());
+        }
+
+        return bounds;
+    }
+
+    private static MapRectangle union(MapRectangle bounds, MapRectangle rectangle)
+    {
+        if (rectangle == null)
+            return bounds;
+
+        if (bounds == null)
+            return rectangle;
+
+        return bounds.union(rectangle);
+    }
+
+    /**
+     * A point tagged with the index of the cluster it belongs to.
+     */
+    private record ClusterPoint(int clusterIndex, Coordinate point)
+    {
+    }
+}